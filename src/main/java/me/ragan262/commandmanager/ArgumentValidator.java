@@ -0,0 +1,171 @@
+package me.ragan262.commandmanager;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import me.ragan262.commandmanager.annotations.Argument;
+import me.ragan262.commandmanager.annotations.ArgumentType;
+import me.ragan262.commandmanager.annotations.Arguments;
+import me.ragan262.commandmanager.lang.ArgumentLang;
+import me.ragan262.commandmanager.lang.CommandLang;
+
+import org.bukkit.Bukkit;
+
+/**
+ * Compiled {@link Argument} constraint. Patterns are compiled and choices are interned once, when
+ * the command is registered.
+ * 
+ * @author raGan
+ */
+final class ArgumentValidator {
+	
+	private final ArgumentType type;
+	private final double min;
+	private final double max;
+	private final Pattern pattern;
+	private final String[] choices;
+	
+	private ArgumentValidator(final Argument argument) {
+		type = argument.type();
+		min = argument.min();
+		max = argument.max();
+		pattern = argument.pattern().isEmpty() ? null : Pattern.compile(argument.pattern());
+		choices = new String[argument.choices().length];
+		for(int i = 0; i < choices.length; i++) {
+			choices[i] = argument.choices()[i].intern();
+		}
+	}
+	
+	/**
+	 * Compiles constraints into an array indexed by argument positions, positions without
+	 * constraints are null. Player arguments are looked up in the server, so they can't be used 
+	 * by blocking commands, which are executed outside of the main thread.
+	 * 
+	 * @param arguments constraints of the command
+	 * @param blocking true if the command is blocking
+	 * @return compiled constraints, or null if there are none
+	 * @throws IllegalArgumentException if a constraint is invalid
+	 */
+	static ArgumentValidator[] compile(final Arguments arguments, final boolean blocking) {
+		if(arguments == null || arguments.value().length == 0) {
+			return null;
+		}
+		int length = 0;
+		for(final Argument argument : arguments.value()) {
+			if(argument.index() < 0) {
+				throw new IllegalArgumentException("Argument index can't be negative.");
+			}
+			length = Math.max(length, argument.index() + 1);
+		}
+		final ArgumentValidator[] result = new ArgumentValidator[length];
+		for(final Argument argument : arguments.value()) {
+			final int index = argument.index();
+			if(result[index] != null) {
+				throw new IllegalArgumentException("Argument " + index + " has more constraints.");
+			}
+			if(argument.min() > argument.max()) {
+				throw new IllegalArgumentException("Argument " + index + " has min greater than max.");
+			}
+			if(argument.type() == ArgumentType.CHOICE && argument.choices().length == 0) {
+				throw new IllegalArgumentException("Argument " + index + " has no choices.");
+			}
+			if(argument.type() == ArgumentType.PLAYER && blocking) {
+				throw new IllegalArgumentException("Argument " + index + " can't be a player in a blocking command.");
+			}
+			if(argument.type() != ArgumentType.STRING && !argument.pattern().isEmpty()) {
+				throw new IllegalArgumentException("Only string argument can have a pattern.");
+			}
+			try {
+				result[index] = new ArgumentValidator(argument);
+			}
+			catch (final PatternSyntaxException e) {
+				throw new IllegalArgumentException("Argument " + index + " has invalid pattern: " + e.getDescription());
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @param arg argument to parse
+	 * @return parsed value, or null if the argument doesn't satisfy the constraint
+	 */
+	Object parse(final String arg) {
+		switch(type) {
+			case INTEGER:
+				final Integer integer = parseInteger(arg);
+				return integer != null && inRange(integer.intValue()) ? integer : null;
+			case NUMBER:
+				final Double number = parseNumber(arg);
+				return number != null && inRange(number.doubleValue()) ? number : null;
+			case CHOICE:
+				for(final String choice : choices) {
+					if(choice.equalsIgnoreCase(arg)) {
+						return choice;
+					}
+				}
+				return null;
+			case PLAYER:
+				return Bukkit.getPlayerExact(arg);
+			default:
+				return pattern == null || pattern.matcher(arg).matches() ? arg : null;
+		}
+	}
+	
+	/**
+	 * @param arg argument {@link #parse(String)} failed for
+	 * @param senderLang language of the sender, default messages are used if it isn't {@link ArgumentLang}
+	 * @return message describing why the argument is invalid
+	 */
+	String errorMessage(final String arg, final CommandLang senderLang) {
+		final ArgumentLang lang = senderLang instanceof ArgumentLang ? (ArgumentLang) senderLang : DefaultCommandLang.instance;
+		switch(type) {
+			case INTEGER:
+				return parseInteger(arg) == null ? lang.invalidNumberMessage(arg) : lang.outOfRangeMessage(arg);
+			case NUMBER:
+				return parseNumber(arg) == null ? lang.invalidNumberMessage(arg) : lang.outOfRangeMessage(arg);
+			case PLAYER:
+				return lang.playerNotFoundMessage(arg);
+			default:
+				return lang.invalidArgMessage(arg);
+		}
+	}
+	
+	private boolean inRange(final double value) {
+		return value >= min && value <= max;
+	}
+	
+	private static Integer parseInteger(final String arg) {
+		try {
+			return Integer.valueOf(arg);
+		}
+		catch (final NumberFormatException e) {
+			return null;
+		}
+	}
+	
+	private static Double parseNumber(final String arg) {
+		try {
+			return Double.valueOf(arg);
+		}
+		catch (final NumberFormatException e) {
+			return null;
+		}
+	}
+	
+	@Override
+	public boolean equals(final Object obj) {
+		if(!(obj instanceof ArgumentValidator)) {
+			return false;
+		}
+		final ArgumentValidator other = (ArgumentValidator) obj;
+		return type == other.type && Double.compare(min, other.min) == 0 && Double.compare(max, other.max) == 0
+				&& (pattern == null ? other.pattern == null : other.pattern != null && pattern.pattern().equals(other.pattern.pattern()))
+				&& Arrays.equals(choices, other.choices);
+	}
+	
+	@Override
+	public int hashCode() {
+		return type.hashCode() * 31 + Arrays.hashCode(choices);
+	}
+}
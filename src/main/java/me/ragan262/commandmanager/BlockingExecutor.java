@@ -0,0 +1,210 @@
+package me.ragan262.commandmanager;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link me.ragan262.commandmanager.annotations.Command#blocking() blocking} commands outside of
+ * the dispatching thread. If the runtime supports virtual threads (Java 21 and newer), each command
+ * runs in its own virtual thread, otherwise a fixed pool of platform threads is used. Virtual threads
+ * are looked up reflectively, so the library still runs on older runtimes. The number of concurrently 
+ * running invocations of each command is limited. Invocations over the limit wait in a bounded queue
+ * of the command and are submitted when a running one finishes, so they never occupy pool threads.
+ * 
+ * @author raGan
+ */
+final class BlockingExecutor {
+	
+	private final ExecutorService executor;
+	private final boolean virtual;
+	private final int defaultLimit;
+	private final int maxWaiting;
+	private final ConcurrentMap<CommandNode, Integer> limits = new ConcurrentHashMap<CommandNode, Integer>();
+	private final ConcurrentMap<CommandNode, NodeQueue> queues = new ConcurrentHashMap<CommandNode, NodeQueue>();
+	
+	BlockingExecutor(final int platformThreads, final int defaultLimit, final int maxWaiting) {
+		this.defaultLimit = defaultLimit;
+		this.maxWaiting = maxWaiting;
+		ExecutorService service = createVirtualExecutor();
+		virtual = service != null;
+		if(service == null) {
+			final AtomicInteger count = new AtomicInteger();
+			service = Executors.newFixedThreadPool(platformThreads, new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable r) {
+					final Thread thread = new Thread(r, "CommandManager blocking #" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		executor = service;
+	}
+	
+	private static ExecutorService createVirtualExecutor() {
+		try {
+			final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		}
+		catch (final Exception e) {
+			return null; // not supported by this runtime
+		}
+	}
+	
+	boolean isVirtual() {
+		return virtual;
+	}
+	
+	void setLimit(final CommandNode node, final int limit) {
+		limits.put(node, limit);
+		final NodeQueue queue = queues.get(node);
+		if(queue != null) {
+			queue.setLimit(limit);
+		}
+	}
+	
+	/**
+	 * Moves the limit and running invocations of a re-registered command to its replacement.
+	 */
+	void replace(final CommandNode node, final CommandNode replacement) {
+		final Integer limit = limits.remove(node);
+		if(limit != null) {
+			limits.put(replacement, limit);
+		}
+		final NodeQueue queue = queues.remove(node);
+		if(queue != null) {
+			queues.put(replacement, queue);
+		}
+	}
+	
+	/**
+	 * Discards the limit and the queue of a removed command. Running invocations are not affected.
+	 */
+	void remove(final CommandNode node) {
+		limits.remove(node);
+		queues.remove(node);
+	}
+	
+	/**
+	 * Submits the command, or queues it if the command already runs as many times as its limit allows.
+	 * 
+	 * @return false if the command was rejected because its queue is full
+	 * @throws RejectedExecutionException if the executor was shut down
+	 */
+	boolean execute(final CommandNode node, final Runnable command) {
+		return getQueue(node).submit(command);
+	}
+	
+	void shutdown() {
+		executor.shutdown();
+	}
+	
+	private NodeQueue getQueue(final CommandNode node) {
+		NodeQueue queue = queues.get(node);
+		if(queue == null) {
+			final Integer limit = limits.get(node);
+			queue = new NodeQueue(limit == null ? defaultLimit : limit);
+			final NodeQueue previous = queues.putIfAbsent(node, queue);
+			if(previous != null) {
+				queue = previous;
+			}
+		}
+		return queue;
+	}
+	
+	/**
+	 * Running invocations and waiting invocations of a single command.
+	 */
+	private final class NodeQueue {
+		
+		private final Queue<Runnable> pending = new ArrayDeque<Runnable>();
+		private int limit;
+		private int running = 0;
+		
+		NodeQueue(final int limit) {
+			this.limit = limit;
+		}
+		
+		boolean submit(final Runnable command) {
+			synchronized(this) {
+				if(running >= limit) {
+					if(pending.size() >= maxWaiting) {
+						return false;
+					}
+					pending.add(command);
+					return true;
+				}
+				running++;
+			}
+			start(command);
+			return true;
+		}
+		
+		void setLimit(final int limit) {
+			final List<Runnable> started = new ArrayList<Runnable>();
+			synchronized(this) {
+				this.limit = limit;
+				while(running < limit && !pending.isEmpty()) {
+					running++;
+					started.add(pending.poll());
+				}
+			}
+			for(final Runnable command : started) {
+				startQuietly(command);
+			}
+		}
+		
+		private void start(final Runnable command) {
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							command.run();
+						}
+						finally {
+							finished();
+						}
+					}
+				});
+			}
+			catch (final RejectedExecutionException e) {
+				synchronized(this) {
+					running--;
+				}
+				throw e;
+			}
+		}
+		
+		private void startQuietly(final Runnable command) {
+			try {
+				start(command);
+			}
+			catch (final RejectedExecutionException e) {
+				// shut down, waiting commands are discarded
+			}
+		}
+		
+		private void finished() {
+			final Runnable next;
+			synchronized(this) {
+				next = running <= limit ? pending.poll() : null;
+				if(next == null) {
+					running--;
+					return;
+				}
+			}
+			startQuietly(next);
+		}
+	}
+}
@@ -1,17 +1,25 @@
 package me.ragan262.commandmanager;
 
-import org.bukkit.ChatColor;
+import me.ragan262.commandmanager.format.CommandFormat;
 
 public class CommandHelp {
 	
 	protected final String commandString;
 	protected final String usage;
 	protected final String description;
+	protected final String section;
+	
+	private volatile FormattedLine formatted = null;
 	
 	protected CommandHelp(String commandString, String usage, String description) {
+		this(commandString, usage, description, "");
+	}
+	
+	protected CommandHelp(String commandString, String usage, String description, String section) {
 		this.commandString = commandString;
 		this.usage = usage;
 		this.description = description;
+		this.section = section;
 	}
 	
 	public String getCommandString() {
@@ -26,9 +34,46 @@ public class CommandHelp {
 		return description;
 	}
 	
+	/**
+	 * @return {@link me.ragan262.commandmanager.annotations.Command#section() section} of the command
+	 */
+	public String getSection() {
+		return section;
+	}
+	
+	/**
+	 * @return help line formatted by {@link CommandFormat#DEFAULT default format}
+	 */
 	public String getFormattedHelp() {
-		return commandString + (usage.isEmpty() ? "" : ChatColor.GOLD + " " + usage) 
-				+ (description.isEmpty() ? "" : ChatColor.GRAY + " - " + description);
+		return getFormattedHelp(CommandFormat.DEFAULT);
+	}
+	
+	/**
+	 * Formats this help using the format. The result is cached, so formatting it again using
+	 * the same format object returns the same line.
+	 * 
+	 * @param format format to use
+	 * @return formatted help line
+	 */
+	public String getFormattedHelp(final CommandFormat format) {
+		final FormattedLine line = formatted;
+		if(line != null && line.format == format) {
+			return line.line;
+		}
+		final String result = format.formatHelp(this);
+		formatted = new FormattedLine(format, result);
+		return result;
+	}
+	
+	private static final class FormattedLine {
+		
+		final CommandFormat format;
+		final String line;
+		
+		FormattedLine(final CommandFormat format, final String line) {
+			this.format = format;
+			this.line = line;
+		}
 	}
 	
 }
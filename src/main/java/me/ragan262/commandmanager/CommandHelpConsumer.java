@@ -0,0 +1,20 @@
+package me.ragan262.commandmanager;
+
+import java.util.List;
+
+/**
+ * Receives pages of help generated by {@link CommandManager#streamHelp(String[], org.bukkit.command.CommandSender, boolean, int, CommandHelpConsumer) streamHelp}.
+ * 
+ * @author raGan
+ */
+public interface CommandHelpConsumer {
+	
+	/**
+	 * Called for every full page of help and once for the last partial page, if there is one.
+	 * 
+	 * @param page help entries in the order they appear in the command tree
+	 * @return true if help generation should continue, false to stop it
+	 */
+	public boolean accept(List<CommandHelp> page);
+	
+}
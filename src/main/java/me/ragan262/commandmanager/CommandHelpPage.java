@@ -0,0 +1,43 @@
+package me.ragan262.commandmanager;
+
+import java.util.List;
+
+/**
+ * Single page of help generated by {@link CommandManager#getHelpPage(String[], org.bukkit.command.CommandSender, boolean, int, int) getHelpPage}.
+ * Entries are grouped by {@link CommandHelp#getSection() section}, sections are in natural order.
+ * 
+ * @author raGan
+ */
+public final class CommandHelpPage {
+	
+	private final int page;
+	private final List<CommandHelp> entries;
+	private final boolean hasNext;
+	
+	CommandHelpPage(final int page, final List<CommandHelp> entries, final boolean hasNext) {
+		this.page = page;
+		this.entries = entries;
+		this.hasNext = hasNext;
+	}
+	
+	/**
+	 * @return number of this page, starting with 1
+	 */
+	public int getPage() {
+		return page;
+	}
+	
+	/**
+	 * @return unmodifiable list of help entries on this page
+	 */
+	public List<CommandHelp> getEntries() {
+		return entries;
+	}
+	
+	/**
+	 * @return true if there is at least one more entry after this page
+	 */
+	public boolean hasNextPage() {
+		return hasNext;
+	}
+}
@@ -0,0 +1,53 @@
+package me.ragan262.commandmanager;
+
+import me.ragan262.commandmanager.context.CommandContext;
+import me.ragan262.commandmanager.exceptions.CommandException;
+import me.ragan262.commandmanager.exceptions.CommandVetoedException;
+
+import org.bukkit.command.CommandSender;
+
+/**
+ * <p>Adds behavior around execution of commands. Interceptors are registered in {@link CommandManager}
+ * either globally or for a command and all commands beneath it. For each command, all interceptors
+ * that apply to it are compiled into a single chain in order global interceptors first, then 
+ * interceptors of the outermost command down to the command itself.</p>
+ * 
+ * <p>Interceptors are called after the command is resolved, all permission checks have passed
+ * and command context is created.</p>
+ * 
+ * @author raGan
+ */
+public interface CommandInterceptor {
+	
+	/**
+	 * Error passed to {@link #postCommand(CommandNode, CommandContext, CommandSender, Throwable) postCommand}
+	 * when an inner interceptor stopped the chain, so the command was not executed.
+	 */
+	public static final CommandVetoedException VETOED = new CommandVetoedException();
+	
+	/**
+	 * Called before the command is executed.
+	 * 
+	 * @param node resolved command
+	 * @param context command context
+	 * @param sender command sender
+	 * @return true to continue, false to stop the chain without executing the command, which is then
+	 * reported as {@link #VETOED}
+	 * @throws CommandException to refuse execution of the command with an error message
+	 */
+	public boolean preCommand(CommandNode node, CommandContext context, CommandSender sender) throws CommandException;
+	
+	/**
+	 * Called after the command is executed or the chain is stopped, but only if {@link #preCommand(CommandNode, CommandContext, CommandSender) preCommand}
+	 * of this interceptor returned true. Interceptors are called in reverse order. This method should 
+	 * not throw any exceptions.
+	 * 
+	 * @param node resolved command
+	 * @param context command context
+	 * @param sender command sender
+	 * @param error exception thrown by the command or inner interceptors, {@link #VETOED} if an inner
+	 * interceptor stopped the chain, null if the command was executed without errors
+	 */
+	public void postCommand(CommandNode node, CommandContext context, CommandSender sender, Throwable error);
+	
+}
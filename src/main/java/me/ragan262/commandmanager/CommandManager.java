@@ -1,31 +1,57 @@
 package me.ragan262.commandmanager;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import me.ragan262.commandmanager.annotations.Arguments;
 import me.ragan262.commandmanager.annotations.Command;
 import me.ragan262.commandmanager.annotations.CommandLabels;
+import me.ragan262.commandmanager.annotations.Completion;
 import me.ragan262.commandmanager.annotations.NestedCommand;
+import me.ragan262.commandmanager.audit.AuditFilter;
+import me.ragan262.commandmanager.audit.AuditFilters;
+import me.ragan262.commandmanager.audit.AuditOutcome;
+import me.ragan262.commandmanager.audit.CommandAuditEvent;
+import me.ragan262.commandmanager.audit.CommandAuditor;
+import me.ragan262.commandmanager.completion.CompletionRegistry;
 import me.ragan262.commandmanager.context.CommandContext;
 import me.ragan262.commandmanager.context.ContextFactory;
+import me.ragan262.commandmanager.context.ReplyBuffer;
 import me.ragan262.commandmanager.context.SimpleContextFactory;
 import me.ragan262.commandmanager.exceptions.CommandException;
+import me.ragan262.commandmanager.format.CommandFormat;
+import me.ragan262.commandmanager.format.FormattedCommandLang;
 import me.ragan262.commandmanager.exceptions.CommandExceptionHandler;
+import me.ragan262.commandmanager.exceptions.CommandVetoedException;
 import me.ragan262.commandmanager.exceptions.PermissionException;
 import me.ragan262.commandmanager.exceptions.UsageException;
 import me.ragan262.commandmanager.lang.CommandLang;
 import me.ragan262.commandmanager.lang.CommandLangProvider;
+import me.ragan262.commandmanager.lang.QueueLang;
 import me.ragan262.commandmanager.lang.SimpleCommandLangProvider;
 import org.apache.commons.lang.Validate;
-import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
@@ -46,13 +72,54 @@ public final class CommandManager {
 	private CommandLangProvider lang = new SimpleCommandLangProvider(DefaultCommandLang.instance);
 	private final ContextFactory cFactory;
 	private CommandExceptionHandler exceptionHandler;
+	private CommandFormat format = CommandFormat.DEFAULT;
+	private static final int FORMATTED_LANG_CACHE_SIZE = 64;
+	/** Formatted languages, limited in case the language provider creates languages per sender. */
+	private final Map<CommandLang, FormattedCommandLang> formattedLangs = new LinkedHashMap<CommandLang, FormattedCommandLang>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<CommandLang, FormattedCommandLang> eldest) {
+			return size() > FORMATTED_LANG_CACHE_SIZE;
+		}
+	};
+	private volatile CommandAuditor auditor = null;
+	private AuditFilter auditFilter = AuditFilters.ALL;
+	private ForkJoinPool helpPool = null;
+	private int parallelHelpThreshold = 256;
+	
+	private volatile CommandNode root = new CommandNode();
+	private final Map<String, List<String>> registrations = new HashMap<String, List<String>>();
+	private final List<CommandInterceptor> globalInterceptors = new ArrayList<CommandInterceptor>();
+	private CompletionRegistry completionRegistry = null;
+	private boolean ownCompletionRegistry = false;
+	private volatile CommandQueue queue = null;
+	private volatile BlockingExecutor blockingExecutor = null;
+	private volatile long treeVersion = TreeExport.version(root);
+	private volatile DispatchProfiler profiler = null;
+	private volatile ReplyCache replyCache = new ReplyCache(256);
+	private volatile Executor replyExecutor = null;
+	
+	private static final int DISPATCH_PLAN_CACHE_SIZE = 4096;
+	private static final int DEFAULT_BLOCKING_WAITING = 64;
+	private boolean dispatchCache = false;
+	private final Map<CommandSender, PermissionProfile> senderProfiles =
+			Collections.synchronizedMap(new WeakHashMap<CommandSender, PermissionProfile>());
+	private final ConcurrentMap<List<Object>, Boolean> dispatchPlans = new ConcurrentHashMap<List<Object>, Boolean>();
 	
-	private final Map<Method, Map<String, Method>> labels =
-			new HashMap<Method, Map<String, Method>>();
-	private final Map<Method, Map<String, Method>> aliases =
-			new HashMap<Method, Map<String, Method>>();
-	private final Map<Method, Object> instances = new HashMap<Method, Object>();
-	private final Map<Method, Command> annotations = new HashMap<Method, Command>();
+	private static final int HELP_PAGE_CACHE_SIZE = 512;
+	private PermissionIndex permissionIndex = null;
+	private final Map<List<Object>, HelpIndex> helpIndexes = new HashMap<List<Object>, HelpIndex>();
+	private final Map<List<Object>, CommandHelpPage> helpPages = new LinkedHashMap<List<Object>, CommandHelpPage>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<List<Object>, CommandHelpPage> eldest) {
+			return size() > HELP_PAGE_CACHE_SIZE;
+		}
+	};
+	/** Last help created for each command, reused while it is requested with the same arguments. */
+	private final ConcurrentMap<CommandNode, CachedHelp> helps = new ConcurrentHashMap<CommandNode, CachedHelp>();
 	
 	/**
 	 * This is the same as {@link CommandManager#CommandManager(ContextFactory, Logger, String, Object...) CommandManager(SimpleContextFactory.instance, logger, displayedCommand, arguments)}.
@@ -85,7 +152,7 @@ public final class CommandManager {
 		}
 		exceptionHandler = new CommandExceptionHandler() {
 			public void handleException(Throwable e, CommandSender sender) {
-				sender.sendMessage(ChatColor.RED + e.getMessage());
+				sender.sendMessage(format.formatError(String.valueOf(e.getMessage())));
 			}
 		};
 	}
@@ -111,6 +178,29 @@ public final class CommandManager {
 	public void setLanguageProvider(CommandLangProvider provider) {
 		Validate.notNull(provider, "Language provider can't be null.");
 		lang = provider;
+		synchronized(formattedLangs) {
+			formattedLangs.clear();
+		}
+	}
+	
+	/**
+	 * Sets format of error messages sent by {@link #handleCommand(String[], CommandSender) handleCommand}.
+	 * 
+	 * @param format format to use
+	 */
+	public void setFormat(final CommandFormat format) {
+		Validate.notNull(format, "Format can't be null.");
+		this.format = format;
+		synchronized(formattedLangs) {
+			formattedLangs.clear();
+		}
+	}
+	
+	/**
+	 * @return {@link CommandFormat format} used by this command manager
+	 */
+	public CommandFormat getFormat() {
+		return format;
 	}
 	
 	public void setExceptionHandler(CommandExceptionHandler handler) {
@@ -119,6 +209,287 @@ public final class CommandManager {
 		}
 	}
 	
+	/**
+	 * <p>Sets auditor notified about every resolved command that passes the audit filter. Auditor
+	 * receives the resolved path, sender name, context arguments, outcome and time spent on execution.
+	 * Auditor is called on the dispatching thread, see {@link me.ragan262.commandmanager.audit.FileAuditLog FileAuditLog}
+	 * for implementation that never touches the file system on that thread.</p>
+	 * 
+	 * @param auditor auditor to use, null disables auditing
+	 */
+	public void setAuditor(final CommandAuditor auditor) {
+		this.auditor = auditor;
+	}
+	
+	/**
+	 * Sets filter deciding which commands are audited. By default, all commands are audited.
+	 * 
+	 * @param filter audit filter, see {@link AuditFilters}
+	 */
+	public void setAuditFilter(final AuditFilter filter) {
+		Validate.notNull(filter, "Audit filter can't be null.");
+		auditFilter = filter;
+	}
+	
+	/**
+	 * Sets registry of completion providers used by {@link #complete(String[], CommandSender) complete}.
+	 * 
+	 * @param registry completion registry
+	 */
+	public synchronized void setCompletionRegistry(final CompletionRegistry registry) {
+		Validate.notNull(registry, "Completion registry can't be null.");
+		if(ownCompletionRegistry) {
+			completionRegistry.shutdown();
+			ownCompletionRegistry = false;
+		}
+		completionRegistry = registry;
+	}
+	
+	/**
+	 * @return {@link CompletionRegistry completion registry} used by this command manager, 
+	 * new registry is created if none was set
+	 */
+	public synchronized CompletionRegistry getCompletionRegistry() {
+		if(completionRegistry == null) {
+			completionRegistry = new CompletionRegistry(logger == null ? Logger.getLogger(CommandManager.class.getName()) : logger, 1024);
+			ownCompletionRegistry = true;
+		}
+		return completionRegistry;
+	}
+	
+	/**
+	 * Stops background threads owned by this command manager, the blocking executor and the 
+	 * completion registry created by {@link #getCompletionRegistry()}. Registry set by 
+	 * {@link #setCompletionRegistry(CompletionRegistry)} has to be shut down by its owner.
+	 * Should be called when the plugin is disabled.
+	 */
+	public synchronized void shutdown() {
+		if(ownCompletionRegistry) {
+			completionRegistry.shutdown();
+			completionRegistry = null;
+			ownCompletionRegistry = false;
+		}
+		setBlockingExecution(0, 0);
+	}
+	
+	/**
+	 * <p>Enables caching of dispatch plans. Permissions of each sender are evaluated once into a 
+	 * permission profile, and for each combination of permission profile, sender type and command path
+	 * the result of all player and permission checks is remembered. Repeated execution of 
+	 * an authorized command then skips all checks and goes straight to context creation.</p>
+	 * 
+	 * <p>Cached plans are discarded when commands are registered. If permissions of a sender change,
+	 * {@link #invalidatePermissions(CommandSender)} must be called.</p>
+	 * 
+	 * @param enabled true to enable the cache, false to disable it
+	 */
+	public void setDispatchCache(final boolean enabled) {
+		dispatchCache = enabled;
+		if(!enabled) {
+			invalidatePermissions();
+		}
+	}
+	
+	/**
+	 * Discards cached permissions of the sender, see {@link #setDispatchCache(boolean)}.
+	 * 
+	 * @param sender sender whose permissions changed
+	 */
+	public void invalidatePermissions(final CommandSender sender) {
+		senderProfiles.remove(sender);
+	}
+	
+	/**
+	 * Discards cached permissions of all senders and all dispatch plans, see {@link #setDispatchCache(boolean)}.
+	 */
+	public void invalidatePermissions() {
+		senderProfiles.clear();
+		dispatchPlans.clear();
+	}
+	
+	/**
+	 * <p>Enables or disables execution queue. When the queue is enabled, 
+	 * {@link #handleCommand(String[], CommandSender) handleCommand} only resolves the command and
+	 * checks permissions, and the execution itself is put into the queue and postponed until 
+	 * {@link #drainQueue(long) drainQueue} is called. Errors are still sent to the sender.</p>
+	 * 
+	 * <p>Each sender can only have a limited number of commands in the queue. When the queue or
+	 * sender's share of it is full, the command is rejected with {@link QueueLang#queueFullMessage()}.
+	 * Senders take turns when the queue is drained. {@link #execute(String[], CommandSender) execute}
+	 * is never queued.</p>
+	 * 
+	 * @param capacity maximal number of queued commands, non-positive value disables the queue 
+	 * and discards all queued commands
+	 * @param perSenderLimit maximal number of queued commands of a single sender
+	 */
+	public void setExecutionQueue(final int capacity, final int perSenderLimit) {
+		if(capacity <= 0) {
+			queue = null;
+			return;
+		}
+		Validate.isTrue(perSenderLimit > 0, "Sender limit must be positive.");
+		queue = new CommandQueue(capacity, Math.min(capacity, perSenderLimit));
+	}
+	
+	/**
+	 * Executes queued commands until the queue is empty or the time budget is used up. Meant to be
+	 * called once per tick from the main thread. At least one command is executed if there is one.
+	 * 
+	 * @param budget time budget in nanoseconds
+	 * @return number of executed commands
+	 */
+	public int drainQueue(final long budget) {
+		final CommandQueue queue = this.queue;
+		return queue == null ? 0 : queue.drain(budget);
+	}
+	
+	/**
+	 * @return metrics of the execution queue, or null if the queue is disabled
+	 */
+	public CommandQueueStats getQueueStats() {
+		final CommandQueue queue = this.queue;
+		return queue == null ? null : queue.getStats();
+	}
+	
+	/**
+	 * Resets counters and wait times of the execution queue, queued commands are kept.
+	 */
+	public void resetQueueStats() {
+		final CommandQueue queue = this.queue;
+		if(queue != null) {
+			queue.resetStats();
+		}
+	}
+	
+	/**
+	 * <p>Enables or disables blocking execution. When enabled, commands marked as
+	 * {@link Command#blocking() blocking} executed by {@link #handleCommand(String[], CommandSender) handleCommand}
+	 * are only resolved and checked on the calling thread and executed in background. If the runtime 
+	 * supports virtual threads, each invocation gets its own virtual thread, otherwise pool of platform
+	 * threads is used. Errors are sent to the sender and unknown exceptions are passed to the
+	 * {@link CommandExceptionHandler exception handler} through the {@link #setReplyExecutor(Executor) 
+	 * reply executor}, or from the background thread if there is none.</p>
+	 * 
+	 * <p>Invocations over the limit of a command wait until a running one finishes. At most 
+	 * 64 invocations of each command wait, further ones are 
+	 * rejected with {@link QueueLang#queueFullMessage()}.</p>
+	 * 
+	 * @param platformThreads number of platform threads used if virtual threads are not supported,
+	 * non-positive value disables blocking execution
+	 * @param defaultLimit maximal number of concurrently running invocations of each command
+	 */
+	public void setBlockingExecution(final int platformThreads, final int defaultLimit) {
+		setBlockingExecution(platformThreads, defaultLimit, DEFAULT_BLOCKING_WAITING);
+	}
+	
+	/**
+	 * Same as {@link #setBlockingExecution(int, int)}, with configurable number of waiting invocations.
+	 * 
+	 * @param platformThreads number of platform threads used if virtual threads are not supported,
+	 * non-positive value disables blocking execution
+	 * @param defaultLimit maximal number of concurrently running invocations of each command
+	 * @param maxWaiting maximal number of invocations of each command waiting for a running one to finish
+	 */
+	public void setBlockingExecution(final int platformThreads, final int defaultLimit, final int maxWaiting) {
+		final BlockingExecutor previous = blockingExecutor;
+		if(platformThreads <= 0) {
+			blockingExecutor = null;
+		}
+		else {
+			Validate.isTrue(defaultLimit > 0, "Limit must be positive.");
+			Validate.isTrue(maxWaiting >= 0, "Waiting limit can't be negative.");
+			blockingExecutor = new BlockingExecutor(platformThreads, defaultLimit, maxWaiting);
+		}
+		if(previous != null) {
+			previous.shutdown();
+		}
+	}
+	
+	/**
+	 * Sets maximal number of concurrently running invocations of a blocking command. Must be called
+	 * after blocking execution is enabled.
+	 * 
+	 * @param path labels of the command
+	 * @param limit concurrency limit
+	 * @throws IllegalArgumentException if there is no such command
+	 */
+	public void setBlockingLimit(final String[] path, final int limit) {
+		Validate.isTrue(limit > 0, "Limit must be positive.");
+		final BlockingExecutor executor = blockingExecutor;
+		Validate.notNull(executor, "Blocking execution is not enabled.");
+		executor.setLimit(getNode(path), limit);
+	}
+	
+	/**
+	 * @return true if blocking commands are executed in virtual threads
+	 */
+	public boolean isBlockingOnVirtualThreads() {
+		final BlockingExecutor executor = blockingExecutor;
+		return executor != null && executor.isVirtual();
+	}
+	
+	/**
+	 * <p>Enables or disables dispatch profiling. Sampled dispatches are measured per command and per
+	 * phase (resolve, permission, context, invoke, error), both in time and allocated bytes where the
+	 * runtime supports measuring allocations per thread. Measurements are reset.</p>
+	 * 
+	 * <p>Profiling adds a thread local lookup to every phase of every dispatch, sampled dispatches
+	 * also pay for the measurements. Low sampling rates are fine for production.</p>
+	 * 
+	 * @param interval average number of dispatches per sample, 1 to sample every dispatch, 
+	 * non-positive value disables profiling
+	 */
+	public void setProfiling(final int interval) {
+		profiler = interval > 0 ? new DispatchProfiler(interval) : null;
+	}
+	
+	/**
+	 * @return measurements of sampled dispatches per command, sorted by allocated bytes, 
+	 * or null if profiling is disabled
+	 */
+	public String getProfilingReport() {
+		final DispatchProfiler profiler = this.profiler;
+		return profiler == null ? null : profiler.toString();
+	}
+	
+	/**
+	 * Discards all profiling measurements.
+	 */
+	public void resetProfiling() {
+		final DispatchProfiler profiler = this.profiler;
+		if(profiler != null) {
+			profiler.reset();
+		}
+	}
+	
+	/**
+	 * Sets maximal number of cached replies of {@link Command#cacheTtl() cached commands}. All
+	 * cached replies are discarded.
+	 * 
+	 * @param size maximal number of cached replies
+	 */
+	public void setReplyCacheSize(final int size) {
+		Validate.isTrue(size > 0, "Size must be positive.");
+		replyCache = new ReplyCache(size);
+	}
+	
+	/**
+	 * Discards all cached replies.
+	 */
+	public void invalidateReplies() {
+		replyCache.clear();
+	}
+	
+	/**
+	 * Discards cached replies of the command.
+	 * 
+	 * @param path labels of the command
+	 * @throws IllegalArgumentException if there is no such command
+	 */
+	public void invalidateReplies(final String[] path) {
+		replyCache.invalidate(getNode(path));
+	}
+	
 	/**
 	 * @return {@link CommandLangProvider language provider} used by this command manager
 	 */
@@ -145,164 +516,844 @@ public final class CommandManager {
 	 * 
 	 * @param clss class to register
 	 */
-	public void register(final Class<?> clss) {
-		registerMethods(null, clss);
+	public synchronized void register(final Class<?> clss) {
+		final List<String> keys = registerMethods(root, clss);
+		addRegistration(clss, keys);
+		treeChanged();
 	}
 	
-	private void registerMethods(final Method parent, final Class<?> clss) {
-		final Object instance = construct(clss);
-		for(final Method method : clss.getMethods()) {
-			
-			if(!method.isAnnotationPresent(Command.class)
-					|| !method.isAnnotationPresent(CommandLabels.class)) {
-				continue;
+	/**
+	 * <p>Registers the class again, for example after it was reloaded. Commands previously registered
+	 * by the class are replaced by the newly scanned ones. Commands with unchanged annotations and 
+	 * the same methods are kept together with their class instances, interceptors and blocking limits. 
+	 * Changed commands are replaced, but keep their interceptors, blocking limits and profiling data.
+	 * Cached replies are kept if only the method changed (e.g. the class was loaded by a new class 
+	 * loader), otherwise they are discarded. Blocking limits and queues, profiling data and cached
+	 * replies of removed commands are discarded.</p>
+	 * 
+	 * <p>New command tree is built next to the current one and published at once, so commands being 
+	 * executed concurrently finish on the old tree. Nodes of the current tree are never modified,
+	 * unchanged top-level commands are shared and all other nodes are copied.</p>
+	 * 
+	 * @param clss class to register
+	 */
+	public synchronized void reregister(final Class<?> clss) {
+		final CommandNode current = root;
+		final CommandNode scanned = new CommandNode();
+		final List<String> keys = registerMethods(scanned, clss);
+		final Map<CommandNode, CommandNode> replaced = new IdentityHashMap<CommandNode, CommandNode>();
+		
+		final Set<CommandNode> removed = Collections.newSetFromMap(new IdentityHashMap<CommandNode, Boolean>());
+		final List<String> previous = registrations.get(clss.getName());
+		if(previous != null) {
+			for(final String key : previous) {
+				final int index = current.indexOf(key);
+				if(index >= 0 && !current.isAlias(index)) {
+					removed.add(current.child(index));
+				}
 			}
-			
-			if(instance == null && !Modifier.isStatic(method.getModifiers())) {
-				logger.warning("Failed to register command: " + method.getName() + "() in "
-						+ clss.getCanonicalName() + ". Class instance is missing.");
-				continue;
+		}
+		
+		final CommandNode next = new CommandNode();
+		for(int i = 0; i < current.keyCount(); i++) {
+			if(!removed.contains(current.child(i))) {
+				next.addChild(current.key(i), current.child(i), current.isAlias(i));
 			}
-			
-			Class<?>[] paramTypes = method.getParameterTypes();
-			if(paramTypes.length != 2 
-					|| !paramTypes[0].isAssignableFrom(cFactory.getContextClass()) 
-					|| !paramTypes[1].equals(CommandSender.class)) {
-				logger.warning("Failed to register command: " + method.getName() + "() in "
-						+ clss.getCanonicalName() + ". Method has incorrect parameter types.");
-				continue;
+		}
+		mergeChildren(current, scanned, next, replaced);
+		
+		final Set<CommandNode> retained = Collections.newSetFromMap(new IdentityHashMap<CommandNode, Boolean>());
+		for(int i = 0; i < next.keyCount(); i++) {
+			retained.add(next.child(i));
+		}
+		final List<CommandNode> dropped = new ArrayList<CommandNode>();
+		for(final CommandNode node : removed) {
+			collectDropped(node, retained, replaced, dropped);
+		}
+		
+		final BlockingExecutor executor = blockingExecutor;
+		final DispatchProfiler profiler = this.profiler;
+		final ReplyCache cache = replyCache;
+		for(final Map.Entry<CommandNode, CommandNode> entry : replaced.entrySet()) {
+			final CommandNode old = entry.getKey();
+			final CommandNode replacement = entry.getValue();
+			if(executor != null) {
+				executor.replace(old, replacement);
 			}
-			
-			instances.put(method, instance);
-			
-			final Command qCmd = method.getAnnotation(Command.class);
-			annotations.put(method, qCmd);
-			
-			if(labels.get(parent) == null) {
-				labels.put(parent, new TreeMap<String, Method>()); // sorted
+			if(profiler != null) {
+				profiler.replace(old, replacement);
 			}
-			if(aliases.get(parent) == null) {
-				aliases.put(parent, new HashMap<String, Method>());
+			if(old.hasSameDefinition(replacement)) {
+				cache.replace(old, replacement);
 			}
-			
-			final Map<String, Method> lblMap = labels.get(parent);
-			final Map<String, Method> aliMap = aliases.get(parent);
-			
-			final CommandLabels qCmdLbls = method.getAnnotation(CommandLabels.class);
-			final String[] aliases = qCmdLbls.value();
-			lblMap.put(aliases[0].toLowerCase(), method);
-			for(int i = 1; i < aliases.length; i++) {
-				aliMap.put(aliases[i].toLowerCase(), method);
+			else {
+				cache.invalidate(old);
 			}
-			
-			if(method.isAnnotationPresent(NestedCommand.class)) {
-				for(final Class<?> iCls : method.getAnnotation(NestedCommand.class).value()) {
-					registerMethods(method, iCls);
-				}
+		}
+		for(final CommandNode node : dropped) {
+			if(executor != null) {
+				executor.remove(node);
 			}
-			
+			if(profiler != null) {
+				profiler.remove(node);
+			}
+			cache.invalidate(node);
+		}
+		root = next;
+		registrations.remove(clss.getName());
+		addRegistration(clss, keys);
+		treeChanged();
+	}
+	
+	private void addRegistration(final Class<?> clss, final List<String> keys) {
+		List<String> list = registrations.get(clss.getName());
+		if(list == null) {
+			list = new ArrayList<String>(keys.size());
+			registrations.put(clss.getName(), list);
 		}
+		list.addAll(keys);
 	}
 	
 	/**
-	 * <p>Executes the command with given arguments. Can throw CommandException and IllegalArgumentException,
-	 * all other exceptions are caught by command manager and logged as a command fail.</p>
+	 * Adds merged subcommands of the scanned node to the target node.
 	 * 
-	 * @param args command arguments
-	 * @param sender sender of the, must not be null, {@link IllegalArgumentException} is thrown otherwise
-	 * @throws Exception everything thrown by commandmanager or command itself
+	 * @param current node with the same label in the current tree, or null
+	 * @param scanned newly scanned node
+	 * @param target node to add subcommands to
+	 * @param replaced map of replaced nodes to their replacements
 	 */
-	public void execute(String[] args, final CommandSender sender) throws Throwable {
-		if(args == null) {
-			args = new String[0];
+	private void mergeChildren(final CommandNode current, final CommandNode scanned, final CommandNode target, final Map<CommandNode, CommandNode> replaced) {
+		final CommandNode parent = target.isRoot() ? null : target;
+		final Map<CommandNode, CommandNode> merged = new IdentityHashMap<CommandNode, CommandNode>();
+		for(int i = 0; i < scanned.keyCount(); i++) {
+			if(!scanned.isAlias(i)) {
+				CommandNode old = null;
+				if(current != null) {
+					final int index = current.indexOf(scanned.key(i));
+					old = index < 0 || current.isAlias(index) ? null : current.child(index);
+				}
+				merged.put(scanned.child(i), merge(old, scanned.child(i), parent, replaced));
+			}
+		}
+		for(int i = 0; i < scanned.keyCount(); i++) {
+			final CommandNode node = merged.get(scanned.child(i));
+			target.addChild(scanned.key(i), node, scanned.isAlias(i));
 		}
-		Validate.notNull(sender);
-		executeMethod(args, sender, null, 0);
 	}
 	
-	private void executeMethod(final String[] args, final CommandSender sender, final Method parent, int level) throws Throwable {
-		
-		CommandLang senderLang = lang.getCommandLang(sender);
-		
-		if(args.length <= level) {
-			throw new UsageException(senderLang.notEnoughArgsMessage(), getUsage(args, level, parent));
+	/**
+	 * Current node is kept only if it stays under the same parent and its whole subtree is unchanged,
+	 * otherwise it is copied together with its subcommands.
+	 * 
+	 * @param current node with the same label in the current tree, or null
+	 * @param scanned newly scanned node
+	 * @param parent parent of the node in the new tree, null for top-level commands
+	 * @param replaced map of replaced nodes to their replacements
+	 * @return node to use in the new tree
+	 */
+	private CommandNode merge(final CommandNode current, final CommandNode scanned, final CommandNode parent, final Map<CommandNode, CommandNode> replaced) {
+		if(current != null && current.getParent() == parent && isUnchanged(current, scanned)) {
+			return current;
 		}
-		final String label = args[level].toLowerCase();
-		
-		boolean execute = false;
-		if(parent != null) {
-			execute = annotations.get(parent).forceExecute();
+		final boolean sameMethod = current != null && current.hasSameDefinition(scanned)
+				&& current.getMethod().equals(scanned.getMethod());
+		final CommandNode result = sameMethod ? new CommandNode(current, parent, current.getMethod(), current.getInstance())
+				: new CommandNode(scanned, parent, scanned.getMethod(), scanned.getInstance());
+		mergeChildren(current, scanned, result, replaced);
+		if(current != null) {
+			result.interceptors = current.interceptors;
+			replaced.put(current, result);
 		}
-		
-		Method method = labels.get(parent).get(label);
-		if(method == null) {
-			method = aliases.get(parent).get(label);
+		return result;
+	}
+	
+	/**
+	 * @return true if both nodes have the same definition and method and so do all their subcommands
+	 */
+	private static boolean isUnchanged(final CommandNode current, final CommandNode scanned) {
+		if(!current.hasSameDefinition(scanned) || !current.getMethod().equals(scanned.getMethod())
+				|| current.keyCount() != scanned.keyCount()) {
+			return false;
 		}
-		if(method == null) {
-			if(execute) {
-				method = parent;
-				level--;
+		for(int i = 0; i < current.keyCount(); i++) {
+			if(current.isAlias(i) != scanned.isAlias(i) || !current.key(i).equals(scanned.key(i))) {
+				return false;
 			}
-			else {
-				throw new UsageException(senderLang.unknownArgMessage(label), getUsage(args, level - 1,
-						parent));
+			if(current.isAlias(i) ? !current.child(i).hasSameDefinition(scanned.child(i))
+					: !isUnchanged(current.child(i), scanned.child(i))) {
+				return false;
 			}
 		}
-		
-		// check every permission for nested command
-		final Command cmd = annotations.get(method);
-		if(cmd.player() && !(sender instanceof Player)) {
-			throw new CommandException(senderLang.playerContextMessage());
+		return true;
+	}
+	
+	/**
+	 * Collects nodes of the removed subtree that are neither kept nor replaced in the new tree.
+	 * 
+	 * @param node removed node
+	 * @param retained top-level commands of the new tree
+	 * @param replaced map of replaced nodes to their replacements
+	 * @param dropped list to add dropped nodes to
+	 */
+	private static void collectDropped(final CommandNode node, final Set<CommandNode> retained, final Map<CommandNode, CommandNode> replaced, final List<CommandNode> dropped) {
+		if(retained.contains(node)) {
+			return;
 		}
-		if(sender == null || !hasPermission(sender, cmd.permission())) {
-			throw new PermissionException(cmd.permission());
+		if(!replaced.containsKey(node)) {
+			dropped.add(node);
 		}
-		
-		if(method != parent && labels.get(method) != null) { // going deeper
-			final int numArgs = args.length - level - 1;
-			if(numArgs < 1) {
-				if(!cmd.forceExecute()) {
-					throw new UsageException(senderLang.notEnoughArgsMessage(), getUsage(args, level, method));
-				}
-			}
-			else {
-				executeMethod(args, sender, method, level + 1);
-				return; // stop here
+		for(int i = 0; i < node.keyCount(); i++) {
+			if(!node.isAlias(i)) {
+				collectDropped(node.child(i), retained, replaced, dropped);
 			}
 		}
-		final String[] parentArgs = new String[level + 1];
-		final String[] realArgs = new String[args.length - level - 1];
-		System.arraycopy(args, 0, parentArgs, 0, level + 1);
-		System.arraycopy(args, level + 1, realArgs, 0, args.length - level - 1);
-		
-		final CommandContext context = cFactory.getContext(realArgs, parentArgs, sender, this);
-		
-		if(context.length() < cmd.min()) {
-			throw new UsageException(senderLang.notEnoughArgsMessage(), getUsage(args, level, method));
-		}
-		
-		if(!(cmd.max() < 0) && context.length() > cmd.max()) {
-			throw new UsageException(senderLang.tooManyArgsMessage(), getUsage(args, level, method));
-		}
-		
-		invoke(method, context, sender);
 	}
 	
-	private void invoke(final Method method, final Object... methodArgs) throws Throwable {
-		Throwable ex = null;
-		try {
-			method.invoke(instances.get(method), methodArgs);
-		}
-		catch (final InvocationTargetException e) {
-			throw e.getCause();
-		}
-		catch (Throwable e){
-			logger.log(Level.SEVERE, "Failed to execute command.", ex);
-		}
+	/**
+	 * @return approximate memory footprint of the registered command tree
+	 */
+	public String getMemoryReport() {
+		return new TreeFootprint(root).toString();
 	}
-
+	
 	/**
-	 * <p>Safe way of calling {@link #execute(String[], CommandSender) execute} method. All exceptions
+	 * Version of the registered command tree. It changes whenever labels, aliases, descriptions, usages,
+	 * permissions, sections, argument limits, flags or nesting of commands change, so clients of the
+	 * {@link #exportJson(Writer) exported tree} only need to fetch it again if the version differs.
+	 * 
+	 * @return hash of the registered command tree
+	 */
+	public long getTreeVersion() {
+		return treeVersion;
+	}
+	
+	/**
+	 * Writes description of all registered commands as JSON. Nothing is formatted and no sender is
+	 * needed. Output is written while walking the tree, the writer should be buffered.
+	 * 
+	 * @param writer writer to write to, flushed but not closed
+	 * @throws IOException if writing fails
+	 */
+	public void exportJson(final Writer writer) throws IOException {
+		Validate.notNull(writer, "Writer can't be null.");
+		TreeExport.writeJson(root, treeVersion, writer);
+	}
+	
+	/**
+	 * Writes compact binary description of all registered commands. See {@link #exportJson(Writer)}.
+	 * 
+	 * @param stream stream to write to, flushed but not closed
+	 * @throws IOException if writing fails
+	 */
+	public void exportBinary(final OutputStream stream) throws IOException {
+		Validate.notNull(stream, "Stream can't be null.");
+		TreeExport.writeBinary(root, treeVersion, stream);
+	}
+	
+	private void treeChanged() {
+		root.updateSubtreeSize();
+		treeVersion = TreeExport.version(root);
+		synchronized(helpIndexes) {
+			permissionIndex = null;
+			helpIndexes.clear();
+			helpPages.clear();
+		}
+		helps.clear();
+		invalidatePermissions();
+		compileInterceptors();
+	}
+	
+	/**
+	 * Adds interceptor applied to all commands. See {@link CommandInterceptor}.
+	 * 
+	 * @param interceptor interceptor to add
+	 */
+	public void addInterceptor(final CommandInterceptor interceptor) {
+		Validate.notNull(interceptor, "Interceptor can't be null.");
+		globalInterceptors.add(interceptor);
+		compileInterceptors();
+	}
+	
+	/**
+	 * Adds interceptor applied to the command and all commands beneath it. See {@link CommandInterceptor}.
+	 * 
+	 * @param path labels of the command
+	 * @param interceptor interceptor to add
+	 * @throws IllegalArgumentException if there is no such command
+	 */
+	public void addInterceptor(final String[] path, final CommandInterceptor interceptor) {
+		Validate.notNull(interceptor, "Interceptor can't be null.");
+		getNode(path).addInterceptor(interceptor);
+		compileInterceptors();
+	}
+	
+	/**
+	 * Removes all global and command interceptors.
+	 */
+	public void clearInterceptors() {
+		globalInterceptors.clear();
+		root.clearInterceptors();
+		compileInterceptors();
+	}
+	
+	/**
+	 * @param path labels of the command
+	 * @return registered command
+	 * @throws IllegalArgumentException if there is no such command
+	 */
+	public CommandNode getNode(final String[] path) {
+		final CommandNode[] nodes = resolvePath(path);
+		if(nodes.length == 0) {
+			throw new IllegalArgumentException("Path can't be empty.");
+		}
+		return nodes[nodes.length - 1];
+	}
+	
+	private void compileInterceptors() {
+		compileInterceptors(root, globalInterceptors);
+	}
+	
+	private void compileInterceptors(final CommandNode parent, final List<CommandInterceptor> inherited) {
+		for(int i = 0; i < parent.keyCount(); i++) {
+			if(parent.isAlias(i)) {
+				continue;
+			}
+			final CommandNode node = parent.child(i);
+			final List<CommandInterceptor> chain = new ArrayList<CommandInterceptor>(inherited);
+			chain.addAll(Arrays.asList(node.interceptors));
+			node.chain = chain.toArray(new CommandInterceptor[chain.size()]);
+			compileInterceptors(node, chain);
+		}
+	}
+	
+	/**
+	 * @return keys of main labels of registered commands
+	 */
+	private List<String> registerMethods(final CommandNode parent, final Class<?> clss) {
+		final List<String> keys = new ArrayList<String>();
+		final Object instance = construct(clss);
+		for(final Method method : clss.getMethods()) {
+			
+			if(!method.isAnnotationPresent(Command.class)
+					|| !method.isAnnotationPresent(CommandLabels.class)) {
+				continue;
+			}
+			
+			if(instance == null && !Modifier.isStatic(method.getModifiers())) {
+				logger.warning("Failed to register command: " + method.getName() + "() in "
+						+ clss.getCanonicalName() + ". Class instance is missing.");
+				continue;
+			}
+			
+			Class<?>[] paramTypes = method.getParameterTypes();
+			if(paramTypes.length != 2 
+					|| !paramTypes[0].isAssignableFrom(cFactory.getContextClass()) 
+					|| !paramTypes[1].equals(CommandSender.class)) {
+				logger.warning("Failed to register command: " + method.getName() + "() in "
+						+ clss.getCanonicalName() + ". Method has incorrect parameter types.");
+				continue;
+			}
+			
+			final Command qCmd = method.getAnnotation(Command.class);
+			final CommandLabels qCmdLbls = method.getAnnotation(CommandLabels.class);
+			final String[] aliases = qCmdLbls.value();
+			final Completion completion = method.getAnnotation(Completion.class);
+			final ArgumentValidator[] validators;
+			try {
+				validators = ArgumentValidator.compile(method.getAnnotation(Arguments.class), qCmd.blocking());
+			}
+			catch (final IllegalArgumentException e) {
+				logger.warning("Failed to register command: " + method.getName() + "() in "
+						+ clss.getCanonicalName() + ". " + e.getMessage());
+				continue;
+			}
+			
+			final CommandNode node = new CommandNode(parent.isRoot() ? null : parent, method, instance, qCmd, aliases,
+					completion == null ? null : completion.value(), validators);
+			final String key = aliases[0].toLowerCase(Locale.ENGLISH).intern();
+			parent.addChild(key, node, false);
+			keys.add(key);
+			for(int i = 1; i < aliases.length; i++) {
+				parent.addChild(aliases[i].toLowerCase(Locale.ENGLISH).intern(), node, true);
+			}
+			
+			if(method.isAnnotationPresent(NestedCommand.class)) {
+				for(final Class<?> iCls : method.getAnnotation(NestedCommand.class).value()) {
+					registerMethods(node, iCls);
+				}
+			}
+			
+		}
+		return keys;
+	}
+	
+	/**
+	 * <p>Executes the command with given arguments. Can throw CommandException and IllegalArgumentException,
+	 * all other exceptions are caught by command manager and logged as a command fail. Commands stopped
+	 * by an interceptor throw {@link CommandInterceptor#VETOED}.</p>
+	 * 
+	 * @param args command arguments
+	 * @param sender sender of the, must not be null, {@link IllegalArgumentException} is thrown otherwise
+	 * @throws Exception everything thrown by commandmanager or command itself
+	 */
+	public void execute(final String[] args, final CommandSender sender) throws Throwable {
+		final DispatchProfiler profiler = this.profiler;
+		final boolean sampled = profiler != null && profiler.begin();
+		final ReplyBuffer reply = new ReplyBuffer();
+		boolean failed = true;
+		try {
+			execute(args, sender, false, reply);
+			failed = false;
+		}
+		finally {
+			sendReply(reply, sender, false);
+			if(sampled) {
+				profiler.end(root, failed);
+			}
+		}
+	}
+	
+	private void execute(String[] args, final CommandSender sender, final boolean deferrable, final ReplyBuffer reply) throws Throwable {
+		if(args == null) {
+			args = new String[0];
+		}
+		Validate.notNull(sender);
+		if(dispatchCache && executePlanned(args, sender, deferrable, reply)) {
+			return;
+		}
+		executeMethod(args, sender, root, 0, deferrable, reply);
+	}
+	
+	/**
+	 * Resolves the command without checking anything but labels, and executes it if cached plan
+	 * says the sender is authorized for the whole path. Everything else is left to 
+	 * {@link #executeMethod(String[], CommandSender, CommandNode, int, boolean, ReplyBuffer) executeMethod}, 
+	 * which generates appropriate errors.
+	 * 
+	 * @return true if the command was executed
+	 */
+	private boolean executePlanned(final String[] args, final CommandSender sender, final boolean deferrable, final ReplyBuffer reply) throws Throwable {
+		CommandNode node = root;
+		int level = 0;
+		while(true) {
+			if(args.length <= level) {
+				return false;
+			}
+			final CommandNode child = node.getChild(args[level]);
+			if(child == null) {
+				if(node.isRoot() || !node.isForceExecute()) {
+					return false;
+				}
+				level--;
+				break;
+			}
+			node = child;
+			if(!node.hasChildren()) {
+				break;
+			}
+			if(args.length - level - 1 < 1) {
+				if(!node.isForceExecute()) {
+					return false;
+				}
+				break;
+			}
+			level++;
+		}
+		mark(DispatchProfiler.RESOLVE);
+		final boolean player = sender instanceof Player;
+		final PermissionProfile profile = getSenderProfile(sender);
+		final List<Object> key = Arrays.<Object>asList(profile, player, node);
+		Boolean authorized = dispatchPlans.get(key);
+		if(authorized == null) {
+			authorized = isAuthorized(profile, player, node);
+			if(dispatchPlans.size() >= DISPATCH_PLAN_CACHE_SIZE) {
+				dispatchPlans.clear();
+			}
+			dispatchPlans.put(key, authorized);
+		}
+		mark(DispatchProfiler.PERMISSION);
+		if(!authorized) {
+			return false;
+		}
+		dispatch(args, sender, node, level, deferrable, reply);
+		return true;
+	}
+	
+	private boolean isAuthorized(final PermissionProfile profile, final boolean player, CommandNode node) {
+		final PermissionIndex index = profile.getIndex();
+		for(; !node.isRoot(); node = node.getParent() == null ? root : node.getParent()) {
+			if(node.isPlayerOnly() && !player) {
+				return false;
+			}
+			if(!profile.has(index.getId(node.getPermission()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private PermissionProfile getSenderProfile(final CommandSender sender) {
+		final PermissionIndex index = getPermissionIndex();
+		PermissionProfile profile = senderProfiles.get(sender);
+		if(profile == null || profile.getIndex() != index) {
+			profile = index.createProfile(sender);
+			senderProfiles.put(sender, profile);
+		}
+		return profile;
+	}
+	
+	/**
+	 * @return cached permissions of the sender if the dispatch cache is enabled, current ones otherwise
+	 */
+	private PermissionProfile getHelpProfile(final CommandSender sender) {
+		return dispatchCache ? getSenderProfile(sender) : getPermissionIndex().createProfile(sender);
+	}
+	
+	private void executeMethod(final String[] args, final CommandSender sender, final CommandNode parent, int level, final boolean deferrable, final ReplyBuffer reply) throws Throwable {
+		
+		CommandLang senderLang = lang.getCommandLang(sender);
+		
+		if(args.length <= level) {
+			throw new UsageException(senderLang.notEnoughArgsMessage(), getUsage(args, level, parent));
+		}
+		final String label = args[level];
+		
+		boolean execute = false;
+		if(!parent.isRoot()) {
+			execute = parent.isForceExecute();
+		}
+		
+		CommandNode node = parent.getChild(label);
+		if(node == null) {
+			if(execute) {
+				node = parent;
+				level--;
+			}
+			else {
+				throw new UsageException(senderLang.unknownArgMessage(label), getUsage(args, level - 1,
+						parent));
+			}
+		}
+		
+		mark(DispatchProfiler.RESOLVE);
+		resolved(node);
+		
+		// check every permission for nested command
+		if(node.isPlayerOnly() && !(sender instanceof Player)) {
+			audit(node, args, level, sender, AuditOutcome.DENIED, 0);
+			throw new CommandException(senderLang.playerContextMessage());
+		}
+		if(sender == null || !hasPermission(sender, node.getPermission())) {
+			audit(node, args, level, sender, AuditOutcome.DENIED, 0);
+			throw new PermissionException(node.getPermission());
+		}
+		mark(DispatchProfiler.PERMISSION);
+		
+		if(node != parent && node.hasChildren()) { // going deeper
+			final int numArgs = args.length - level - 1;
+			if(numArgs < 1) {
+				if(!node.isForceExecute()) {
+					throw new UsageException(senderLang.notEnoughArgsMessage(), getUsage(args, level, node));
+				}
+			}
+			else {
+				executeMethod(args, sender, node, level + 1, deferrable, reply);
+				return; // stop here
+			}
+		}
+		dispatch(args, sender, node, level, deferrable, reply);
+	}
+	
+	private void dispatch(final String[] args, final CommandSender sender, final CommandNode node, final int level, final boolean deferrable, final ReplyBuffer reply) throws Throwable {
+		resolved(node);
+		if(!deferrable) {
+			executeResolved(args, sender, node, level, reply);
+			return;
+		}
+		final BlockingExecutor executor = blockingExecutor;
+		final CommandQueue queue = this.queue;
+		if(node.isBlocking() && executor != null) {
+			if(!executor.execute(node, new DeferredCommand(args, sender, node, level, true))) {
+				throw new CommandException(queueFullMessage(sender));
+			}
+			return;
+		}
+		if(queue == null) {
+			executeResolved(args, sender, node, level, reply);
+			return;
+		}
+		final boolean accepted = queue.offer(sender, new DeferredCommand(args, sender, node, level, false));
+		if(!accepted) {
+			throw new CommandException(queueFullMessage(sender));
+		}
+	}
+	
+	private void executeResolved(final String[] args, final CommandSender sender, final CommandNode node, final int level, final ReplyBuffer reply) throws Throwable {
+		final String[] parentArgs = new String[level + 1];
+		final String[] realArgs = new String[args.length - level - 1];
+		System.arraycopy(args, 0, parentArgs, 0, level + 1);
+		System.arraycopy(args, level + 1, realArgs, 0, args.length - level - 1);
+		
+		final CommandAuditor auditor = this.auditor;
+		final long start = auditor == null ? 0 : System.nanoTime();
+		CommandContext context = null;
+		AuditOutcome outcome = AuditOutcome.ERROR;
+		int phase = DispatchProfiler.CONTEXT;
+		try {
+			context = cFactory.getContext(realArgs, parentArgs, sender, this);
+			context.setReplyBuffer(reply);
+			
+			if(context.length() < node.getMin()) {
+				throw new UsageException(lang.getCommandLang(sender).notEnoughArgsMessage(), getUsage(args, level, node));
+			}
+			
+			if(!(node.getMax() < 0) && context.length() > node.getMax()) {
+				throw new UsageException(lang.getCommandLang(sender).tooManyArgsMessage(), getUsage(args, level, node));
+			}
+			
+			if(node.validators != null) {
+				context.setValues(parseArguments(node.validators, context, sender, args, level, node));
+			}
+			mark(DispatchProfiler.CONTEXT);
+			phase = DispatchProfiler.INVOKE;
+			
+			invokeChain(node, context, sender);
+			outcome = AuditOutcome.SUCCESS;
+		}
+		catch (final UsageException e) {
+			outcome = AuditOutcome.USAGE;
+			throw e;
+		}
+		catch (final PermissionException e) {
+			outcome = AuditOutcome.DENIED;
+			throw e;
+		}
+		catch (final CommandVetoedException e) {
+			outcome = AuditOutcome.VETOED;
+			throw e;
+		}
+		catch (final CommandException e) {
+			outcome = AuditOutcome.FAILED;
+			throw e;
+		}
+		finally {
+			if(context != null) {
+				context.setReplyBuffer(null);
+			}
+			mark(phase);
+			if(auditor != null) {
+				audit(auditor, node, parentArgs, context == null ? realArgs : context.getArgs(), sender, outcome,
+						System.nanoTime() - start);
+			}
+		}
+	}
+	
+	/**
+	 * @return parsed values of constrained arguments, indexed by their positions
+	 * @throws UsageException if an argument doesn't satisfy its constraint
+	 */
+	private Object[] parseArguments(final ArgumentValidator[] validators, final CommandContext context, final CommandSender sender, final String[] args, final int level, final CommandNode node) throws UsageException {
+		final int length = Math.min(validators.length, context.length());
+		final Object[] values = new Object[length];
+		for(int i = 0; i < length; i++) {
+			final ArgumentValidator validator = validators[i];
+			if(validator == null) {
+				continue;
+			}
+			final String arg = context.getString(i);
+			values[i] = validator.parse(arg);
+			if(values[i] == null) {
+				throw new UsageException(validator.errorMessage(arg, lang.getCommandLang(sender)), getUsage(args, level, node));
+			}
+		}
+		return values;
+	}
+	
+	private void mark(final int phase) {
+		final DispatchProfiler profiler = this.profiler;
+		if(profiler != null) {
+			profiler.mark(phase);
+		}
+	}
+	
+	private void resolved(final CommandNode node) {
+		final DispatchProfiler profiler = this.profiler;
+		if(profiler != null) {
+			profiler.resolved(node);
+		}
+	}
+	
+	private void audit(final CommandNode node, final String[] args, final int level, final CommandSender sender, final AuditOutcome outcome, final long duration) {
+		final CommandAuditor auditor = this.auditor;
+		if(auditor == null) {
+			return;
+		}
+		final String[] path = new String[level + 1];
+		final String[] cmdArgs = new String[args.length - level - 1];
+		System.arraycopy(args, 0, path, 0, level + 1);
+		System.arraycopy(args, level + 1, cmdArgs, 0, args.length - level - 1);
+		audit(auditor, node, path, cmdArgs, sender, outcome, duration);
+	}
+	
+	private void audit(final CommandAuditor auditor, final CommandNode node, final String[] path, final String[] cmdArgs, final CommandSender sender, final AuditOutcome outcome, final long duration) {
+		if(!auditFilter.shouldAudit(path, node.getPermission(), node.getSection())) {
+			return;
+		}
+		try {
+			auditor.record(new CommandAuditEvent(System.currentTimeMillis(), path,
+					sender == null ? "" : sender.getName(), cmdArgs, outcome, duration));
+		}
+		catch (final RuntimeException e) {
+			logger.log(Level.WARNING, "Command auditor failed.", e);
+		}
+	}
+	
+	private void invokeChain(final CommandNode node, final CommandContext context, final CommandSender sender) throws Throwable {
+		final CommandInterceptor[] chain = node.chain;
+		if(chain.length == 0) {
+			invokeCached(node, context, sender);
+			return;
+		}
+		int entered = 0;
+		Throwable error = null;
+		try {
+			while(entered < chain.length) {
+				if(!chain[entered].preCommand(node, context, sender)) {
+					throw CommandInterceptor.VETOED;
+				}
+				entered++;
+			}
+			invokeCached(node, context, sender);
+		}
+		catch (final Throwable e) {
+			error = e;
+			throw e;
+		}
+		finally {
+			for(int i = entered - 1; i >= 0; i--) {
+				try {
+					chain[i].postCommand(node, context, sender, error);
+				}
+				catch (final RuntimeException e) {
+					logger.log(Level.WARNING, "Command interceptor failed.", e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Invokes the command, or sends its cached reply if it is a cached command.
+	 */
+	private void invokeCached(final CommandNode node, final CommandContext context, final CommandSender sender) throws Throwable {
+		final long ttl = node.getCacheTtl();
+		if(ttl == 0) {
+			invoke(node, context, sender);
+			return;
+		}
+		final ReplyCache cache = replyCache;
+		final List<Object> key = Arrays.<Object>asList(node, Arrays.asList(context.getArgs()), context.getFlags(),
+				node.isCachedPerSender() ? sender.getName() : null);
+		final long now = System.currentTimeMillis();
+		final String[] cached = cache.get(key, now);
+		if(cached != null) {
+			reply(context, sender, cached);
+			return;
+		}
+		final ReplyBuffer previous = context.getReplyBuffer();
+		final ReplyBuffer buffer = new ReplyBuffer();
+		context.setReplyBuffer(buffer);
+		boolean success = false;
+		try {
+			invoke(node, context, sender);
+			success = true;
+		}
+		finally {
+			context.setReplyBuffer(previous);
+			final String[] lines = buffer.toArray();
+			if(success && lines.length > 0) {
+				cache.put(key, lines, now + ttl);
+			}
+			reply(context, sender, lines);
+		}
+	}
+	
+	private static void reply(final CommandContext context, final CommandSender sender, final String[] lines) {
+		final ReplyBuffer buffer = context.getReplyBuffer();
+		if((buffer == null || !buffer.addAll(lines)) && lines.length > 0) {
+			sender.sendMessage(lines);
+		}
+	}
+	
+	private void invoke(final CommandNode node, final Object... methodArgs) throws Throwable {
+		Throwable ex = null;
+		try {
+			node.getMethod().invoke(node.getInstance(), methodArgs);
+		}
+		catch (final InvocationTargetException e) {
+			throw e.getCause();
+		}
+		catch (Throwable e){
+			logger.log(Level.SEVERE, "Failed to execute command.", ex);
+		}
+	}
+
+	/**
+	 * <p>Generates completions for the last of the arguments. If it is a command label, labels of all
+	 * subcommands the sender has permission for are completed. If it is a command argument, provider 
+	 * declared for its position by {@link Completion} annotation is used. This method never blocks
+	 * on asynchronous providers, see {@link CompletionRegistry}.</p>
+	 * 
+	 * @param args command arguments, the last one being the completed one
+	 * @param sender sender requesting completion
+	 * @return sorted list of completions
+	 */
+	public List<String> complete(final String[] args, final CommandSender sender) {
+		Validate.notNull(sender);
+		if(args == null || args.length == 0) {
+			return Collections.emptyList();
+		}
+		final int last = args.length - 1;
+		CommandNode node = root;
+		int level = 0;
+		for(; level < last; level++) {
+			if(!node.hasChildren()) {
+				break;
+			}
+			final CommandNode next = node.getChild(args[level]);
+			if(next == null) {
+				if(!node.isRoot() && node.isForceExecute()) {
+					break;
+				}
+				return Collections.emptyList();
+			}
+			if(!hasPermission(sender, next.getPermission())) {
+				return Collections.emptyList();
+			}
+			node = next;
+		}
+		final String prefix = args[last];
+		final List<String> result = new ArrayList<String>();
+		if(level == last && node.hasChildren()) {
+			for(int i = 0; i < node.keyCount(); i++) {
+				if(!node.isAlias(i) && node.key(i).regionMatches(true, 0, prefix, 0, prefix.length())
+						&& hasPermission(sender, node.child(i).getPermission())) {
+					result.add(node.key(i));
+				}
+			}
+			return result;
+		}
+		final String[] ids = node.completions;
+		final int position = last - level;
+		if(ids == null || position >= ids.length || ids[position].isEmpty()) {
+			return result;
+		}
+		result.addAll(getCompletionRegistry().complete(ids[position], sender, Arrays.copyOfRange(args, level, last), prefix));
+		Collections.sort(result, String.CASE_INSENSITIVE_ORDER);
+		return result;
+	}
+	
+	/**
+	 * <p>Safe way of calling {@link #execute(String[], CommandSender) execute} method. All exceptions
 	 * thrown by that method are caught and appropriate response in sender's language is generated
 	 * and sent back to sender.</p>
 	 *  
@@ -310,33 +1361,215 @@ public final class CommandManager {
 	 * @param args command arguments
 	 */
 	public void handleCommand(final String[] args, final CommandSender sender) {
-		CommandLang senderLang = lang.getCommandLang(sender);
+		handleCommand(args, sender, true);
+	}
+	
+	/**
+	 * Same as {@link #handleCommand(String[], CommandSender) handleCommand}, but the command is always
+	 * executed in the calling thread, bypassing execution queue and blocking execution.
+	 * 
+	 * @param args command arguments
+	 * @param sender sender of the command
+	 * @return true if the command was executed without errors
+	 */
+	public boolean handleCommandNow(final String[] args, final CommandSender sender) {
+		return handleCommand(args, sender, false);
+	}
+	
+	/**
+	 * <p>Executes already resolved command in the calling thread. Labels are not resolved and 
+	 * permissions are not checked, argument limits and interceptors are. Errors are handled the
+	 * same way as by {@link #handleCommand(String[], CommandSender) handleCommand}.</p>
+	 * 
+	 * <p>Used to execute commands that were resolved and authorized elsewhere, such as commands 
+	 * forwarded from other servers.</p>
+	 * 
+	 * @param node command to execute
+	 * @param args context arguments of the command
+	 * @param sender sender of the command
+	 * @return true if the command was executed without errors
+	 */
+	public boolean handleResolved(final CommandNode node, final String[] args, final CommandSender sender) {
+		Validate.notNull(node, "Node can't be null.");
+		Validate.isTrue(!node.isRoot(), "Node can't be the root node.");
+		Validate.notNull(sender, "Sender can't be null.");
+		int depth = 0;
+		for(CommandNode n = node; n != null; n = n.getParent()) {
+			depth++;
+		}
+		final String[] allArgs = new String[depth + args.length];
+		int i = depth - 1;
+		for(CommandNode n = node; n != null; n = n.getParent()) {
+			allArgs[i--] = n.getLabels()[0];
+		}
+		System.arraycopy(args, 0, allArgs, depth, args.length);
+		
+		final DispatchProfiler profiler = this.profiler;
+		final boolean sampled = profiler != null && profiler.begin();
+		final ReplyBuffer reply = new ReplyBuffer();
+		boolean failed = true;
 		try {
-			execute(args, sender);
+			resolved(node);
+			executeResolved(allArgs, sender, node, depth - 1, reply);
+			failed = false;
+			return true;
 		}
-		catch (final CommandException e) {
+		catch (final Throwable e) {
+			handleException(e, sender, reply, false);
+			return false;
+		}
+		finally {
+			sendReply(reply, sender, false);
+			if(sampled) {
+				profiler.end(root, failed);
+			}
+		}
+	}
+	
+	private boolean handleCommand(final String[] args, final CommandSender sender, final boolean deferrable) {
+		final DispatchProfiler profiler = this.profiler;
+		final boolean sampled = profiler != null && profiler.begin();
+		final ReplyBuffer reply = new ReplyBuffer();
+		boolean failed = true;
+		try {
+			execute(args, sender, deferrable, reply);
+			failed = false;
+			return true;
+		}
+		catch (final Throwable e) {
+			handleException(e, sender, reply, false);
+			return false;
+		}
+		finally {
+			sendReply(reply, sender, false);
+			if(sampled) {
+				profiler.end(root, failed);
+			}
+		}
+	}
+	
+	/**
+	 * Adds appropriate response in sender's language to the reply. Unknown exceptions are passed 
+	 * to the exception handler after the reply collected so far is sent. In background, both are 
+	 * done through the reply executor if there is one.
+	 * 
+	 * @param background true if called outside of the main thread
+	 */
+	private void handleException(final Throwable e, final CommandSender sender, final ReplyBuffer reply, final boolean background) {
+		if(e == CommandInterceptor.VETOED) {
+			return;
+		}
+		if(e instanceof CommandException) {
+			final FormattedCommandLang senderLang = getFormattedLang(sender);
 			if(e instanceof UsageException) {
-				sender.sendMessage(ChatColor.RED + e.getMessage());
-				sender.sendMessage(ChatColor.RED + senderLang.usageMessage(((UsageException) e).getUsage()));
+				reply.add(senderLang.error(e.getMessage()));
+				reply.add(senderLang.usage(((UsageException) e).getUsage()));
 			}
 			else if(e instanceof PermissionException) {
-				sender.sendMessage(ChatColor.RED + senderLang.permissionMessage(e.getMessage()));
+				reply.add(senderLang.permission(e.getMessage()));
 			}
 			else {
-				sender.sendMessage(ChatColor.RED + e.getMessage());
+				reply.add(senderLang.error(e.getMessage()));
 			}
 		}
-		catch (final NumberFormatException e) {
-			sender.sendMessage(ChatColor.RED + senderLang.invalidNumberMessage(e.getMessage().replaceFirst(".+ \"", "\"")));
+		else if(e instanceof NumberFormatException) {
+			reply.add(getFormattedLang(sender).invalidNumber(e.getMessage().replaceFirst(".+ \"", "\"")));
 		}
-		catch (final IllegalArgumentException e) {
-			sender.sendMessage(ChatColor.RED + senderLang.invalidArgMessage(e.getMessage()));
+		else if(e instanceof IllegalArgumentException) {
+			reply.add(getFormattedLang(sender).invalidArg(e.getMessage()));
+		}
+		else {
+			final Executor executor = background ? replyExecutor : null;
+			if(executor == null) {
+				reply.sendTo(sender);
+				reply.clear();
+				exceptionHandler.handleException(e, sender);
+				return;
+			}
+			final String[] lines = reply.toArray();
+			reply.clear();
+			final CommandExceptionHandler handler = exceptionHandler;
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					if(lines.length > 0) {
+						sender.sendMessage(lines);
+					}
+					handler.handleException(e, sender);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Sets executor used to send replies of commands executed in background by the blocking
+	 * executor, usually one that runs tasks in the main thread. Unknown exceptions of these commands
+	 * are passed to the {@link CommandExceptionHandler exception handler} through it as well. Replies
+	 * are sent and exceptions are handled directly in the background thread if no executor is set.
+	 * 
+	 * @param executor executor sending replies of blocking commands, or null
+	 */
+	public void setReplyExecutor(final Executor executor) {
+		replyExecutor = executor;
+	}
+	
+	/**
+	 * Closes the reply and sends collected lines as a single message. Contexts that outlive 
+	 * the command send their replies directly to the sender from now on.
+	 * 
+	 * @param background true if called outside of the main thread
+	 */
+	private void sendReply(final ReplyBuffer reply, final CommandSender sender, final boolean background) {
+		reply.close();
+		final Executor executor = replyExecutor;
+		if(!background || executor == null || reply.isEmpty()) {
+			reply.sendTo(sender);
 		}
-		catch (Throwable e) {
-			exceptionHandler.handleException(e, sender);
+		else {
+			final String[] lines = reply.toArray();
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					sender.sendMessage(lines);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * @return queue full message in sender's language, default message if the language isn't {@link QueueLang}
+	 */
+	private String queueFullMessage(final CommandSender sender) {
+		final CommandLang senderLang = lang.getCommandLang(sender);
+		return (senderLang instanceof QueueLang ? (QueueLang) senderLang : DefaultCommandLang.instance).queueFullMessage();
+	}
+	
+	private FormattedCommandLang getFormattedLang(final CommandSender sender) {
+		final CommandLang senderLang = lang.getCommandLang(sender);
+		synchronized(formattedLangs) {
+			FormattedCommandLang formatted = formattedLangs.get(senderLang);
+			if(formatted == null) {
+				formatted = new FormattedCommandLang(senderLang, format);
+				formattedLangs.put(senderLang, formatted);
+			}
+			return formatted;
 		}
 	}
 	
+	/**
+	 * <p>Enables parallel deep help generation. When deep help is generated for a command with at
+	 * least <code>threshold</code> commands beneath it, help for each of its direct subcommands
+	 * is generated as a separate task in the provided pool. Results are merged in the same order
+	 * serial generation would produce. Note that sender permissions are checked from pool threads.</p>
+	 * 
+	 * @param pool pool to generate help in, null disables parallel generation
+	 * @param threshold minimal number of commands in the tree for the generation to be parallel
+	 */
+	public void setParallelHelp(final ForkJoinPool pool, final int threshold) {
+		helpPool = pool;
+		parallelHelpThreshold = Math.max(1, threshold);
+	}
+	
 	/**
 	 * <p>Generates help map for the command and its direct subcommands if it has any. Only commands the
 	 * sender has permission for are included. If the help generation is deep, help for all subcommands 
@@ -351,101 +1584,419 @@ public final class CommandManager {
 	 */
 	public Map<String, List<CommandHelp>> getHelp(final String[] args, final CommandSender sender, final boolean deep) {
 		final Map<String, List<CommandHelp>> result = new HashMap<String, List<CommandHelp>>();
-		Method m = null;
-		for(final String s : args) {
-			if(labels.get(m).containsKey(s)) {
-				m = labels.get(m).get(s);
+		final CommandNode[] path = resolvePath(args);
+		for(final CommandNode node : path) {
+			if(!hasPermission(sender, node.getPermission())) {
+				return result;
+			}
+		}
+		final CommandNode node = path.length == 0 ? root : path[path.length - 1];
+		if(deep && helpPool != null && node.subtreeSize >= parallelHelpThreshold) {
+			mergeHelp(result, helpPool.invoke(new HelpTask(sender, node, args, true)));
+		}
+		else {
+			addHelp(sender, node, args, new MapHelpSink(result), deep);
+		}
+		return result;
+	}
+	
+	/**
+	 * <p>Generates the same help as {@link #getHelp(String[], CommandSender, boolean) getHelp}, but instead of
+	 * building the whole map, passes help entries to the consumer in pages as they are generated. Entries
+	 * are not grouped by sections, use {@link CommandHelp#getSection()} to get their section.</p>
+	 * 
+	 * @param args command arguments (empty array will generate help for the main command)
+	 * @param sender sender of the command
+	 * @param deep true if help generation should be deep, false otherwise
+	 * @param pageSize maximal number of entries passed to the consumer at once
+	 * @param consumer help consumer, help generation stops once it returns false
+	 */
+	public void streamHelp(final String[] args, final CommandSender sender, final boolean deep, final int pageSize, final CommandHelpConsumer consumer) {
+		Validate.isTrue(pageSize > 0, "Page size must be positive.");
+		Validate.notNull(consumer, "Consumer can't be null.");
+		final CommandNode[] path = resolvePath(args);
+		for(final CommandNode node : path) {
+			if(!hasPermission(sender, node.getPermission())) {
+				return;
 			}
-			else if(aliases.get(m).containsKey(s)) {
-				m = aliases.get(m).get(s);
+		}
+		final PagingHelpSink sink = new PagingHelpSink(pageSize, consumer);
+		if(addHelp(sender, path.length == 0 ? root : path[path.length - 1], args, sink, deep)) {
+			sink.flush();
+		}
+	}
+	
+	/**
+	 * <p>Gets single page of help for the command. Contains the same entries as 
+	 * {@link #getHelp(String[], CommandSender, boolean) getHelp} would, grouped by sections in 
+	 * their natural order and ordered as in the command tree within each section.</p>
+	 * 
+	 * <p>Help for each command is precomputed once and filtered by sender permissions only until the page
+	 * is full. Pages are cached for senders with the same permissions, so repeated requests
+	 * don't generate anything. If the {@link #setDispatchCache(boolean) dispatch cache} is enabled, 
+	 * sender permissions are cached as well, call {@link #invalidatePermissions(CommandSender)} 
+	 * when they change.</p>
+	 * 
+	 * @param args command arguments (empty array will generate help for the main command)
+	 * @param sender sender of the command
+	 * @param deep true if help generation should be deep, false otherwise
+	 * @param page number of the page, starting with 1
+	 * @param pageSize maximal number of entries on a page
+	 * @return requested help page, empty if there are not enough entries
+	 */
+	public CommandHelpPage getHelpPage(final String[] args, final CommandSender sender, final boolean deep, final int page, final int pageSize) {
+		Validate.isTrue(page > 0, "Page must be positive.");
+		Validate.isTrue(pageSize > 0, "Page size must be positive.");
+		final CommandNode[] path = resolvePath(args);
+		final PermissionProfile profile = getHelpProfile(sender);
+		if(!hasPathPermissions(profile, path)) {
+			return new CommandHelpPage(page, Collections.<CommandHelp>emptyList(), false);
+		}
+		final List<Object> key = Arrays.<Object>asList(profile, Arrays.asList(args.clone()), deep, page, pageSize);
+		synchronized(helpIndexes) {
+			final CommandHelpPage cached = helpPages.get(key);
+			if(cached != null) {
+				return cached;
 			}
-			else {
-				throw new IllegalArgumentException(s);
+		}
+		final CommandHelpPage result = getHelpIndex(path, args, deep).getPage(profile, page, pageSize);
+		synchronized(helpIndexes) {
+			helpPages.put(key, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * @param args command arguments (empty array will generate help for the main command)
+	 * @param sender sender of the command
+	 * @param deep true if help generation should be deep, false otherwise
+	 * @param pageSize maximal number of entries on a page
+	 * @return number of pages {@link #getHelpPage(String[], CommandSender, boolean, int, int) getHelpPage} 
+	 * can return for the sender
+	 */
+	public int getHelpPageCount(final String[] args, final CommandSender sender, final boolean deep, final int pageSize) {
+		Validate.isTrue(pageSize > 0, "Page size must be positive.");
+		final CommandNode[] path = resolvePath(args);
+		final PermissionProfile profile = getHelpProfile(sender);
+		if(!hasPathPermissions(profile, path)) {
+			return 0;
+		}
+		final int count = getHelpIndex(path, args, deep).count(profile);
+		return (count + pageSize - 1) / pageSize;
+	}
+	
+	private PermissionIndex getPermissionIndex() {
+		synchronized(helpIndexes) {
+			if(permissionIndex == null) {
+				permissionIndex = new PermissionIndex(root);
 			}
-			if(!hasPermission(sender, annotations.get(m).permission())) {
-				return result;
+			return permissionIndex;
+		}
+	}
+	
+	private boolean hasPathPermissions(final PermissionProfile profile, final CommandNode[] path) {
+		final PermissionIndex index = profile.getIndex();
+		for(final CommandNode node : path) {
+			if(!profile.has(index.getId(node.getPermission()))) {
+				return false;
 			}
 		}
-		addHelpToMap(sender, m, args, result, deep);
+		return true;
+	}
+	
+	private HelpIndex getHelpIndex(final CommandNode[] path, final String[] args, final boolean deep) {
+		final List<Object> key = Arrays.<Object>asList(Arrays.asList(args.clone()), deep);
+		synchronized(helpIndexes) {
+			HelpIndex index = helpIndexes.get(key);
+			if(index == null) {
+				final List<CommandHelp> helps = new ArrayList<CommandHelp>();
+				final List<int[]> permissions = new ArrayList<int[]>();
+				indexHelp(path.length == 0 ? root : path[path.length - 1], args, new int[0], helps, permissions, deep);
+				index = new HelpIndex(helps, permissions);
+				helpIndexes.put(key, index);
+			}
+			return index;
+		}
+	}
+	
+	/**
+	 * Mirrors {@link #addHelp(CommandSender, CommandNode, String[], HelpSink, boolean) addHelp}, but instead of
+	 * checking permissions, records all permissions required to see each entry.
+	 */
+	private void indexHelp(final CommandNode node, final String[] arguments, int[] required, final List<CommandHelp> helps, final List<int[]> permissions, final boolean deep) {
+		if(!node.isRoot()) {
+			required = appendPermission(required, node);
+			if((!node.hasChildren() || deep) && (!node.hasChildren() || node.isForceExecute())) {
+				helps.add(createHelp(arguments, node));
+				permissions.add(required);
+			}
+		}
+		for(int i = 0; i < node.keyCount(); i++) {
+			if(node.isAlias(i)) {
+				continue;
+			}
+			final CommandNode child = node.child(i);
+			final String[] actualArguments = append(arguments, node.key(i));
+			if(deep) {
+				indexHelp(child, actualArguments, required, helps, permissions, deep);
+			}
+			else {
+				helps.add(createHelp(actualArguments, child));
+				permissions.add(appendPermission(required, child));
+			}
+		}
+	}
+	
+	private int[] appendPermission(final int[] required, final CommandNode node) {
+		final int id = getPermissionIndex().getId(node.getPermission());
+		if(id < 0) {
+			return required;
+		}
+		final int[] result = Arrays.copyOf(required, required.length + 1);
+		result[required.length] = id;
 		return result;
 	}
 	
-	private void addHelpToMap(final CommandSender sender, final Method method, final String[] arguments, final Map<String, List<CommandHelp>> resultMap, final boolean deep) {
-		Command command = null;
-		final Map<String, Method> lbls = labels.get(method);
+	private CommandNode[] resolvePath(final String[] args) {
+		final CommandNode[] path = new CommandNode[args.length];
+		CommandNode node = root;
+		for(int i = 0; i < args.length; i++) {
+			node = node.getChild(args[i]);
+			if(node == null) {
+				throw new IllegalArgumentException(args[i]);
+			}
+			path[i] = node;
+		}
+		return path;
+	}
+	
+	private boolean addHelp(final CommandSender sender, final CommandNode node, final String[] arguments, final HelpSink sink, final boolean deep) {
 		// check if the command is final, or deep help is being generated
-		if(lbls == null || deep) {
-			if(method != null) {
-				command = annotations.get(method);
-				if(lbls != null && !command.forceExecute()) {
-					// we don't want to display command groups
-				}
-				else if(command != null && hasPermission(sender, command.permission())) {
-					if(resultMap.get(command.section()) == null) {
-						resultMap.put(command.section(), new ArrayList<CommandHelp>());
-					}
-					final String cmdString = displayedCommand + (arguments.length > 0 ? " " + implode(arguments) : "");
-					final CommandHelp cmdHelp = new CommandHelp(cmdString, command.usage(), command.desc());
-					resultMap.get(command.section()).add(cmdHelp);
+		if(!node.isRoot() && (!node.hasChildren() || deep)) {
+			// we don't want to display command groups
+			if((!node.hasChildren() || node.isForceExecute()) && hasPermission(sender, node.getPermission())) {
+				if(!sink.add(createHelp(arguments, node))) {
+					return false;
 				}
 			}
 		}
 		// generate help for each subcommand
-		if(lbls != null) {
-			for(final String label : lbls.keySet()) {
-				final Method innerMethod = lbls.get(label);
-				command = annotations.get(innerMethod);
-				if(command != null && hasPermission(sender, command.permission())) {
-					// shall we go deeper?
-					final String[] actualArguments = new String[arguments.length + 1];
-					for(int i = 0; i < arguments.length; i++) {
-						actualArguments[i] = arguments[i];
-					}
-					actualArguments[arguments.length] = label;
-					if(deep) {
-						addHelpToMap(sender, innerMethod, actualArguments, resultMap, deep);
-					}
-					else {
-						if(resultMap.get(command.section()) == null) {
-							resultMap.put(command.section(), new ArrayList<CommandHelp>());
-						}
-						final String cmdString = displayedCommand + (actualArguments.length > 0 ? " " + implode(actualArguments) : "");
-						final CommandHelp cmdHelp = new CommandHelp(cmdString, command.usage(), command.desc());
-						resultMap.get(command.section()).add(cmdHelp);
+		for(int i = 0; i < node.keyCount(); i++) {
+			if(node.isAlias(i)) {
+				continue;
+			}
+			final CommandNode child = node.child(i);
+			if(hasPermission(sender, child.getPermission())) {
+				final String[] actualArguments = append(arguments, node.key(i));
+				// shall we go deeper?
+				if(deep) {
+					if(!addHelp(sender, child, actualArguments, sink, deep)) {
+						return false;
 					}
 				}
+				else if(!sink.add(createHelp(actualArguments, child))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	private CommandHelp createHelp(final String[] arguments, final CommandNode node) {
+		final CachedHelp cached = helps.get(node);
+		if(cached != null && Arrays.equals(cached.arguments, arguments)) {
+			return cached.help;
+		}
+		final String cmdString = displayedCommand + (arguments.length > 0 ? " " + implode(arguments) : "");
+		final CommandHelp help = new CommandHelp(cmdString, node.getUsage(), node.getDescription(), node.getSection());
+		helps.put(node, new CachedHelp(arguments.clone(), help));
+		return help;
+	}
+	
+	private static void mergeHelp(final Map<String, List<CommandHelp>> target, final Map<String, List<CommandHelp>> source) {
+		for(final Map.Entry<String, List<CommandHelp>> entry : source.entrySet()) {
+			final List<CommandHelp> list = target.get(entry.getKey());
+			if(list == null) {
+				target.put(entry.getKey(), entry.getValue());
+			}
+			else {
+				list.addAll(entry.getValue());
+			}
+		}
+	}
+	
+	private static String[] append(final String[] strs, final String str) {
+		final String[] result = Arrays.copyOf(strs, strs.length + 1);
+		result[strs.length] = str;
+		return result;
+	}
+	
+	private static final class CachedHelp {
+		
+		final String[] arguments;
+		final CommandHelp help;
+		
+		CachedHelp(final String[] arguments, final CommandHelp help) {
+			this.arguments = arguments;
+			this.help = help;
+		}
+	}
+	
+	/**
+	 * Resolved command executed later by the execution queue or blocking executor.
+	 */
+	private final class DeferredCommand implements Runnable {
+		
+		private final String[] args;
+		private final CommandSender sender;
+		private final CommandNode node;
+		private final int level;
+		private final boolean background;
+		
+		DeferredCommand(final String[] args, final CommandSender sender, final CommandNode node, final int level, final boolean background) {
+			this.args = args;
+			this.sender = sender;
+			this.node = node;
+			this.level = level;
+			this.background = background;
+		}
+		
+		@Override
+		public void run() {
+			final DispatchProfiler profiler = CommandManager.this.profiler;
+			final boolean sampled = profiler != null && profiler.begin();
+			final ReplyBuffer reply = new ReplyBuffer();
+			boolean failed = true;
+			try {
+				if(sampled) {
+					profiler.resolved(node);
+				}
+				executeResolved(args, sender, node, level, reply);
+				failed = false;
+			}
+			catch (final Throwable e) {
+				handleException(e, sender, reply, background);
+			}
+			finally {
+				sendReply(reply, sender, background);
+				if(sampled) {
+					profiler.end(root, failed);
+				}
+			}
+		}
+	}
+	
+	private interface HelpSink {
+		
+		boolean add(CommandHelp help);
+	}
+	
+	private static final class MapHelpSink implements HelpSink {
+		
+		private final Map<String, List<CommandHelp>> map;
+		
+		MapHelpSink(final Map<String, List<CommandHelp>> map) {
+			this.map = map;
+		}
+		
+		@Override
+		public boolean add(final CommandHelp help) {
+			List<CommandHelp> list = map.get(help.getSection());
+			if(list == null) {
+				list = new ArrayList<CommandHelp>();
+				map.put(help.getSection(), list);
+			}
+			list.add(help);
+			return true;
+		}
+	}
+	
+	private static final class PagingHelpSink implements HelpSink {
+		
+		private final int pageSize;
+		private final CommandHelpConsumer consumer;
+		private List<CommandHelp> page;
+		
+		PagingHelpSink(final int pageSize, final CommandHelpConsumer consumer) {
+			this.pageSize = pageSize;
+			this.consumer = consumer;
+			page = new ArrayList<CommandHelp>(pageSize);
+		}
+		
+		@Override
+		public boolean add(final CommandHelp help) {
+			page.add(help);
+			if(page.size() < pageSize) {
+				return true;
+			}
+			final List<CommandHelp> full = page;
+			page = new ArrayList<CommandHelp>(pageSize);
+			return consumer.accept(full);
+		}
+		
+		void flush() {
+			if(!page.isEmpty()) {
+				consumer.accept(page);
+			}
+		}
+	}
+	
+	/**
+	 * Generates deep help for a command. Top-level task forks one task per subcommand and merges
+	 * their results in label order, so the result is the same as with serial generation.
+	 */
+	private final class HelpTask extends RecursiveTask<Map<String, List<CommandHelp>>> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final CommandSender sender;
+		private final CommandNode node;
+		private final String[] arguments;
+		private final boolean fork;
+		
+		HelpTask(final CommandSender sender, final CommandNode node, final String[] arguments, final boolean fork) {
+			this.sender = sender;
+			this.node = node;
+			this.arguments = arguments;
+			this.fork = fork;
+		}
+		
+		@Override
+		protected Map<String, List<CommandHelp>> compute() {
+			final Map<String, List<CommandHelp>> result = new HashMap<String, List<CommandHelp>>();
+			if(!fork || !node.hasChildren()) {
+				addHelp(sender, node, arguments, new MapHelpSink(result), true);
+				return result;
+			}
+			if(!node.isRoot() && node.isForceExecute() && hasPermission(sender, node.getPermission())) {
+				new MapHelpSink(result).add(createHelp(arguments, node));
+			}
+			final List<HelpTask> tasks = new ArrayList<HelpTask>(node.labelCount());
+			for(int i = 0; i < node.keyCount(); i++) {
+				final CommandNode child = node.child(i);
+				if(!node.isAlias(i) && hasPermission(sender, child.getPermission())) {
+					tasks.add(new HelpTask(sender, child, append(arguments, node.key(i)), false));
+				}
+			}
+			invokeAll(tasks);
+			for(final HelpTask task : tasks) {
+				mergeHelp(result, task.join());
 			}
+			return result;
 		}
 	}
 	
-	private String getUsage(final String[] args, final int level, final Method method) {
+	private String getUsage(final String[] args, final int level, final CommandNode node) {
 		
 		final StringBuilder usage = new StringBuilder();
 		
 		usage.append(displayedCommand);
 		
-		if(method != null) {
+		if(!node.isRoot()) {
 			for(int i = 0; i <= level; i++) {
 				usage.append(' ').append(args[i]);
 			}
-			final Map<String, Method> lbls = labels.get(method);
-			if(lbls == null) {
-				usage.append(' ').append(annotations.get(method).usage());
-			}
-			else {
-				boolean first = true;
-				usage.append(" <");
-				for(final String key : lbls.keySet()) {
-					if(first) {
-						first = false;
-					}
-					else {
-						usage.append('|');
-					}
-					usage.append(key);
-				}
-				usage.append(">");
-			}
+			appendUsage(usage, node);
 		}
 		else {
 			usage.append(' ').append(helpCommand);
@@ -466,49 +2017,49 @@ public final class CommandManager {
 		final StringBuilder usage = new StringBuilder();
 		usage.append(displayedCommand);
 		
-		Method method = null;
-		Method oldMethod = null;
+		CommandNode node = root;
 		
 		for(final String arg : args) {
-			final String lcArg = arg.toLowerCase();
-			method = labels.get(oldMethod).get(lcArg);
-			if(method == null) {
-				method = aliases.get(oldMethod).get(lcArg);
-			}
-			if(method != null) {
-				usage.append(' ').append(lcArg);
-				oldMethod = method;
+			final int index = node.indexOf(arg);
+			if(index >= 0) {
+				usage.append(' ').append(node.key(index));
+				node = node.child(index);
 			}
 			else {
 				break;
 			}
 		}
-		if(labels.get(oldMethod) == null) {
-			if(oldMethod == null) { // if we got nowhere, suggest help
-				usage.append(' ').append(helpCommand);
-			}
-			else {
-				usage.append(' ').append(annotations.get(oldMethod).usage());
-			}
+		if(node.isRoot()) { // if we got nowhere, suggest help
+			usage.append(' ').append(helpCommand);
 		}
 		else {
-			final Map<String, Method> lbls = labels.get(oldMethod);
-			boolean first = true;
-			usage.append(" <");
-			for(final String key : lbls.keySet()) {
-				if(first) {
-					first = false;
-				}
-				else {
-					usage.append('|');
-				}
-				usage.append(key);
-			}
-			usage.append(">");
+			appendUsage(usage, node);
 		}
 		return usage.toString();
 	}
 	
+	private void appendUsage(final StringBuilder usage, final CommandNode node) {
+		if(!node.hasChildren()) {
+			usage.append(' ').append(node.getUsage());
+			return;
+		}
+		boolean first = true;
+		usage.append(" <");
+		for(int i = 0; i < node.keyCount(); i++) {
+			if(node.isAlias(i)) {
+				continue;
+			}
+			if(first) {
+				first = false;
+			}
+			else {
+				usage.append('|');
+			}
+			usage.append(node.key(i));
+		}
+		usage.append(">");
+	}
+	
 	private Object construct(final Class<?> clss) {
 		Exception ex = null;
 		try {
@@ -546,7 +2097,7 @@ public final class CommandManager {
 		return null;
 	}
 	
-	private boolean hasPermission(CommandSender sender, String perm) {
+	static boolean hasPermission(CommandSender sender, String perm) {
 		if(perm.isEmpty()) {
 			return true;
 		}
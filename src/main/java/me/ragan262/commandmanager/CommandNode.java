@@ -0,0 +1,372 @@
+package me.ragan262.commandmanager;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import me.ragan262.commandmanager.annotations.Command;
+
+/**
+ * <p>Single registered command and the root of its subcommand tree. Annotation data are flattened
+ * into fields. Subcommands are stored as a sorted array of interned lower case labels and aliases
+ * with a parallel array of child nodes, aliases being marked by a bit in a bit array.</p>
+ * 
+ * <p>Labels are compared char by char ignoring case the same way {@link String#equalsIgnoreCase(String)}
+ * does. Lookup never creates lower case copies of the input and doesn't depend on default locale.</p>
+ * 
+ * <p>Nodes are only modified during registration. Re-registration builds a new tree sharing
+ * unchanged subtrees with the current one, nodes whose parent changes are copied. Top-level commands
+ * have no parent, so they can be shared by trees with different roots.</p>
+ * 
+ * @author raGan
+ */
+public final class CommandNode {
+	
+	private static final int PLAYER = 1;
+	private static final int FORCE_EXECUTE = 2;
+	private static final int BLOCKING = 4;
+	private static final int CACHE_PER_SENDER = 8;
+	
+	private static final String[] NO_KEYS = new String[0];
+	private static final CommandNode[] NO_CHILDREN = new CommandNode[0];
+	private static final int[] NO_BITS = new int[0];
+	private static final CommandInterceptor[] NO_INTERCEPTORS = new CommandInterceptor[0];
+	
+	private final CommandNode parent;
+	private final Method method;
+	private final Object instance;
+	private final String[] labels;
+	private final String description;
+	private final String usage;
+	private final String permission;
+	private final String section;
+	private final String forward;
+	private final int min;
+	private final int max;
+	private final int flags;
+	private final long cacheTtl;
+	final String[] completions;
+	final ArgumentValidator[] validators;
+	
+	private String[] keys = NO_KEYS;
+	private CommandNode[] children = NO_CHILDREN;
+	private int[] aliasBits = NO_BITS;
+	private int labelCount = 0;
+	int subtreeSize = 1;
+	
+	CommandInterceptor[] interceptors = NO_INTERCEPTORS;
+	volatile CommandInterceptor[] chain = NO_INTERCEPTORS;
+	
+	/**
+	 * Creates root node.
+	 */
+	CommandNode() {
+		parent = null;
+		method = null;
+		instance = null;
+		labels = NO_KEYS;
+		description = "";
+		usage = "";
+		permission = "";
+		section = "";
+		forward = "";
+		min = 0;
+		max = -1;
+		flags = 0;
+		cacheTtl = 0;
+		completions = null;
+		validators = null;
+	}
+	
+	CommandNode(final CommandNode parent, final Method method, final Object instance, final Command command, final String[] labels, final String[] completions, final ArgumentValidator[] validators) {
+		this.parent = parent;
+		this.method = method;
+		this.instance = instance;
+		this.labels = intern(labels);
+		description = command.desc().intern();
+		usage = command.usage().intern();
+		permission = command.permission().intern();
+		section = command.section().intern();
+		forward = command.forward().intern();
+		min = command.min();
+		max = command.max();
+		flags = (command.player() ? PLAYER : 0) | (command.forceExecute() ? FORCE_EXECUTE : 0)
+				| (command.blocking() ? BLOCKING : 0) | (command.cachePerSender() ? CACHE_PER_SENDER : 0);
+		cacheTtl = Math.max(0, command.cacheTtl());
+		this.completions = completions == null ? null : intern(completions);
+		this.validators = validators;
+	}
+	
+	/**
+	 * Creates node with the same definition as the template, without subcommands.
+	 */
+	CommandNode(final CommandNode template, final CommandNode parent, final Method method, final Object instance) {
+		this.parent = parent;
+		this.method = method;
+		this.instance = instance;
+		labels = template.labels;
+		description = template.description;
+		usage = template.usage;
+		permission = template.permission;
+		section = template.section;
+		forward = template.forward;
+		min = template.min;
+		max = template.max;
+		flags = template.flags;
+		cacheTtl = template.cacheTtl;
+		completions = template.completions;
+		validators = template.validators;
+	}
+	
+	/**
+	 * @return command method, null for the root node
+	 */
+	public Method getMethod() {
+		return method;
+	}
+	
+	/**
+	 * @return parent command, null for the root node and top-level commands
+	 */
+	public CommandNode getParent() {
+		return parent == null || parent.isRoot() ? null : parent;
+	}
+	
+	/**
+	 * @return all labels of the command, the first one being the main label
+	 */
+	public String[] getLabels() {
+		return Arrays.copyOf(labels, labels.length);
+	}
+	
+	public String getDescription() {
+		return description;
+	}
+	
+	public String getUsage() {
+		return usage;
+	}
+	
+	public String getPermission() {
+		return permission;
+	}
+	
+	public String getSection() {
+		return section;
+	}
+	
+	/**
+	 * @return group of servers the command is forwarded to, "*" for all, empty string if it is not forwarded
+	 */
+	public String getForward() {
+		return forward;
+	}
+	
+	public int getMin() {
+		return min;
+	}
+	
+	public int getMax() {
+		return max;
+	}
+	
+	public boolean isPlayerOnly() {
+		return (flags & PLAYER) != 0;
+	}
+	
+	public boolean isForceExecute() {
+		return (flags & FORCE_EXECUTE) != 0;
+	}
+	
+	public boolean isBlocking() {
+		return (flags & BLOCKING) != 0;
+	}
+	
+	/**
+	 * @return time in milliseconds replies of this command are cached for, 0 if they are not cached
+	 */
+	public long getCacheTtl() {
+		return cacheTtl;
+	}
+	
+	public boolean isCachedPerSender() {
+		return (flags & CACHE_PER_SENDER) != 0;
+	}
+	
+	/**
+	 * @return subcommands in the order of their main labels
+	 */
+	public List<CommandNode> getChildren() {
+		final List<CommandNode> result = new ArrayList<CommandNode>(labelCount);
+		for(int i = 0; i < keys.length; i++) {
+			if(!isAlias(i)) {
+				result.add(children[i]);
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+	
+	Object getInstance() {
+		return instance;
+	}
+	
+	/**
+	 * Compares annotation data and method signatures. Methods don't have to be the same, for example
+	 * when the class was loaded again by another class loader.
+	 * 
+	 * @return true if both nodes describe the same command
+	 */
+	boolean hasSameDefinition(final CommandNode other) {
+		return min == other.min && max == other.max && flags == other.flags && cacheTtl == other.cacheTtl
+				&& Arrays.equals(labels, other.labels)
+				&& description.equals(other.description)
+				&& usage.equals(other.usage)
+				&& permission.equals(other.permission)
+				&& section.equals(other.section)
+				&& forward.equals(other.forward)
+				&& Arrays.equals(completions, other.completions)
+				&& Arrays.equals(validators, other.validators)
+				&& method.getName().equals(other.method.getName())
+				&& method.getDeclaringClass().getName().equals(other.method.getDeclaringClass().getName());
+	}
+	
+	boolean isRoot() {
+		return method == null;
+	}
+	
+	boolean hasChildren() {
+		return keys.length > 0;
+	}
+	
+	/**
+	 * @return number of labels and aliases of subcommands
+	 */
+	int keyCount() {
+		return keys.length;
+	}
+	
+	/**
+	 * @return number of subcommand labels, not counting aliases
+	 */
+	int labelCount() {
+		return labelCount;
+	}
+	
+	String key(final int index) {
+		return keys[index];
+	}
+	
+	CommandNode child(final int index) {
+		return children[index];
+	}
+	
+	boolean isAlias(final int index) {
+		return (aliasBits[index >>> 5] & (1 << index)) != 0;
+	}
+	
+	/**
+	 * @param key label or alias in any case
+	 * @return subcommand with the label or alias, or null if there is none
+	 */
+	CommandNode getChild(final String key) {
+		final int index = indexOf(key);
+		return index < 0 ? null : children[index];
+	}
+	
+	/**
+	 * @param key label or alias in any case
+	 * @return index of the label or alias, negative if there is none
+	 */
+	int indexOf(final String key) {
+		return Arrays.binarySearch(keys, key, String.CASE_INSENSITIVE_ORDER);
+	}
+	
+	/**
+	 * Adds subcommand under the key. Existing subcommand with the same key is replaced, unless
+	 * it was added under its label and the new one is added under its alias.
+	 */
+	void addChild(final String key, final CommandNode child, final boolean alias) {
+		int index = indexOf(key);
+		if(index >= 0) {
+			if(alias && !isAlias(index)) {
+				return;
+			}
+			if(!alias && isAlias(index)) {
+				labelCount++;
+			}
+			children[index] = child;
+			setAlias(index, alias);
+			return;
+		}
+		index = -index - 1;
+		final int length = keys.length;
+		final String[] newKeys = new String[length + 1];
+		final CommandNode[] newChildren = new CommandNode[length + 1];
+		final int[] newBits = new int[(length >>> 5) + 1];
+		System.arraycopy(keys, 0, newKeys, 0, index);
+		System.arraycopy(children, 0, newChildren, 0, index);
+		System.arraycopy(keys, index, newKeys, index + 1, length - index);
+		System.arraycopy(children, index, newChildren, index + 1, length - index);
+		newKeys[index] = key;
+		newChildren[index] = child;
+		for(int i = 0; i < length; i++) {
+			if(isAlias(i)) {
+				final int j = i < index ? i : i + 1;
+				newBits[j >>> 5] |= 1 << j;
+			}
+		}
+		keys = newKeys;
+		children = newChildren;
+		aliasBits = newBits;
+		setAlias(index, alias);
+		if(!alias) {
+			labelCount++;
+		}
+	}
+	
+	private void setAlias(final int index, final boolean alias) {
+		if(alias) {
+			aliasBits[index >>> 5] |= 1 << index;
+		}
+		else {
+			aliasBits[index >>> 5] &= ~(1 << index);
+		}
+	}
+	
+	void addInterceptor(final CommandInterceptor interceptor) {
+		final CommandInterceptor[] result = Arrays.copyOf(interceptors, interceptors.length + 1);
+		result[interceptors.length] = interceptor;
+		interceptors = result;
+	}
+	
+	void clearInterceptors() {
+		interceptors = NO_INTERCEPTORS;
+		for(final CommandNode child : children) {
+			child.clearInterceptors();
+		}
+	}
+	
+	/**
+	 * @return number of nodes in this subtree, including this one
+	 */
+	int updateSubtreeSize() {
+		int size = 1;
+		for(int i = 0; i < keys.length; i++) {
+			if(!isAlias(i)) {
+				size += children[i].updateSubtreeSize();
+			}
+		}
+		subtreeSize = size;
+		return size;
+	}
+	
+	private static String[] intern(final String[] strs) {
+		final String[] result = new String[strs.length];
+		for(int i = 0; i < strs.length; i++) {
+			result[i] = strs[i].intern();
+		}
+		return result;
+	}
+}
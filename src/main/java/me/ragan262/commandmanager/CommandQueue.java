@@ -0,0 +1,111 @@
+package me.ragan262.commandmanager;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bukkit.command.CommandSender;
+
+/**
+ * Bounded queue of resolved commands waiting for execution. Every sender has its own queue
+ * limited to a fair share of the total capacity, and senders take turns when the queue is drained,
+ * so a single flooding sender can't delay commands of others.
+ * 
+ * @author raGan
+ */
+final class CommandQueue {
+	
+	private final int capacity;
+	private final int senderLimit;
+	private final Map<CommandSender, ArrayDeque<Timed>> bySender = new HashMap<CommandSender, ArrayDeque<Timed>>();
+	private final ArrayDeque<CommandSender> turns = new ArrayDeque<CommandSender>();
+	private int size = 0;
+	
+	private long executed = 0;
+	private long rejected = 0;
+	private long totalWait = 0;
+	private long maxWait = 0;
+	
+	CommandQueue(final int capacity, final int senderLimit) {
+		this.capacity = capacity;
+		this.senderLimit = senderLimit;
+	}
+	
+	/**
+	 * @return false if the queue or sender's share of it is full
+	 */
+	synchronized boolean offer(final CommandSender sender, final Runnable command) {
+		ArrayDeque<Timed> queue = bySender.get(sender);
+		if(size >= capacity || queue != null && queue.size() >= senderLimit) {
+			rejected++;
+			return false;
+		}
+		if(queue == null) {
+			queue = new ArrayDeque<Timed>();
+			bySender.put(sender, queue);
+			turns.addLast(sender);
+		}
+		queue.addLast(new Timed(command, System.nanoTime()));
+		size++;
+		return true;
+	}
+	
+	/**
+	 * Executes queued commands until the queue is empty or the time budget is used up. At least
+	 * one command is executed if the queue is not empty.
+	 * 
+	 * @return number of executed commands
+	 */
+	int drain(final long budget) {
+		final long start = System.nanoTime();
+		int count = 0;
+		do {
+			final Timed command;
+			synchronized(this) {
+				final CommandSender sender = turns.pollFirst();
+				if(sender == null) {
+					break;
+				}
+				final ArrayDeque<Timed> queue = bySender.get(sender);
+				command = queue.pollFirst();
+				if(queue.isEmpty()) {
+					bySender.remove(sender);
+				}
+				else {
+					turns.addLast(sender);
+				}
+				size--;
+				final long wait = System.nanoTime() - command.enqueued;
+				executed++;
+				totalWait += wait;
+				maxWait = Math.max(maxWait, wait);
+			}
+			command.command.run();
+			count++;
+		}
+		while(System.nanoTime() - start < budget);
+		return count;
+	}
+	
+	synchronized CommandQueueStats getStats() {
+		return new CommandQueueStats(size, capacity, executed, rejected, executed == 0 ? 0 : totalWait / executed, maxWait);
+	}
+	
+	synchronized void resetStats() {
+		executed = 0;
+		rejected = 0;
+		totalWait = 0;
+		maxWait = 0;
+	}
+	
+	private static final class Timed {
+		
+		final Runnable command;
+		final long enqueued;
+		
+		Timed(final Runnable command, final long enqueued) {
+			this.command = command;
+			this.enqueued = enqueued;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package me.ragan262.commandmanager;
+
+/**
+ * Snapshot of execution queue metrics, see {@link CommandManager#setExecutionQueue(int, int)}.
+ * 
+ * @author raGan
+ */
+public final class CommandQueueStats {
+	
+	private final int depth;
+	private final int capacity;
+	private final long executed;
+	private final long rejected;
+	private final long averageWait;
+	private final long maxWait;
+	
+	CommandQueueStats(final int depth, final int capacity, final long executed, final long rejected, final long averageWait, final long maxWait) {
+		this.depth = depth;
+		this.capacity = capacity;
+		this.executed = executed;
+		this.rejected = rejected;
+		this.averageWait = averageWait;
+		this.maxWait = maxWait;
+	}
+	
+	/**
+	 * @return number of commands currently waiting in the queue
+	 */
+	public int getDepth() {
+		return depth;
+	}
+	
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * @return number of commands executed from the queue
+	 */
+	public long getExecuted() {
+		return executed;
+	}
+	
+	/**
+	 * @return number of commands rejected because the queue or sender's share of it was full
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+	
+	/**
+	 * @return average time in nanoseconds executed commands spent in the queue
+	 */
+	public long getAverageWait() {
+		return averageWait;
+	}
+	
+	/**
+	 * @return maximal time in nanoseconds an executed command spent in the queue
+	 */
+	public long getMaxWait() {
+		return maxWait;
+	}
+	
+	@Override
+	public String toString() {
+		return "depth: " + depth + "/" + capacity + ", executed: " + executed + ", rejected: " + rejected
+				+ ", average wait: " + averageWait / 1000L + " us, max wait: " + maxWait / 1000L + " us";
+	}
+}
@@ -1,10 +1,11 @@
 package me.ragan262.commandmanager;
 
-import me.ragan262.commandmanager.lang.CommandLang;
+import me.ragan262.commandmanager.lang.ArgumentLang;
+import me.ragan262.commandmanager.lang.QueueLang;
 
-class DefaultCommandLang implements CommandLang {
+class DefaultCommandLang implements ArgumentLang, QueueLang {
 	
-	static final CommandLang instance = new DefaultCommandLang();
+	static final DefaultCommandLang instance = new DefaultCommandLang();
 	
 	private DefaultCommandLang() {}
 	
@@ -40,4 +41,16 @@ class DefaultCommandLang implements CommandLang {
 		return "You don't have permission for this.";
 	}
 	
+	public String queueFullMessage() {
+		return "Too many commands, please slow down.";
+	}
+	
+	public String outOfRangeMessage(String argument) {
+		return "Value out of range: " + argument;
+	}
+	
+	public String playerNotFoundMessage(String player) {
+		return "Player " + player + " is not online.";
+	}
+	
 }
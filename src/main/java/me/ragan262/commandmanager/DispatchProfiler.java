@@ -0,0 +1,266 @@
+package me.ragan262.commandmanager;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Samples dispatches and measures time and allocated bytes per command and per phase of the
+ * dispatch. A sample covers the part of the dispatch executed in a single thread, commands deferred
+ * to the execution queue or blocking executor are sampled again when they are executed.</p>
+ * 
+ * <p>Allocated bytes are measured by {@code com.sun.management.ThreadMXBean}, which is looked up
+ * reflectively. On runtimes without it only time is measured.</p>
+ * 
+ * @author raGan
+ */
+final class DispatchProfiler {
+	
+	static final int RESOLVE = 0;
+	static final int PERMISSION = 1;
+	static final int CONTEXT = 2;
+	static final int INVOKE = 3;
+	static final int ERROR = 4;
+	private static final String[] PHASES = { "resolve", "permission", "context", "invoke", "error" };
+	
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final Method ALLOCATED_BYTES = findAllocatedBytes();
+	/** Bytes allocated by a single measurement, subtracted from every measurement. */
+	private static final long OVERHEAD = measureOverhead();
+	
+	private final int interval;
+	private final ThreadLocal<Sample> current = new ThreadLocal<Sample>();
+	private final ConcurrentMap<CommandNode, NodeProfile> profiles = new ConcurrentHashMap<CommandNode, NodeProfile>();
+	
+	/**
+	 * @param interval average number of dispatches per sample
+	 */
+	DispatchProfiler(final int interval) {
+		this.interval = interval;
+	}
+	
+	private static Method findAllocatedBytes() {
+		try {
+			final Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+			if(!type.isInstance(THREADS)) {
+				return null;
+			}
+			final Method method = type.getMethod("getThreadAllocatedBytes", long.class);
+			if(!(Boolean) type.getMethod("isThreadAllocatedMemorySupported").invoke(THREADS)) {
+				return null;
+			}
+			type.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(THREADS, true);
+			return method;
+		}
+		catch (final Exception e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Decides whether the dispatch is sampled. Dispatches started while the thread is already
+	 * sampled are counted in the invoke phase of the outer dispatch.
+	 * 
+	 * @return true if the dispatch is sampled and {@link #end(CommandNode, boolean)} has to be called
+	 */
+	boolean begin() {
+		if(current.get() != null || (interval > 1 && ThreadLocalRandom.current().nextInt(interval) != 0)) {
+			return false;
+		}
+		current.set(new Sample());
+		return true;
+	}
+	
+	/**
+	 * Attributes time and bytes allocated since the previous mark to the phase, if the thread
+	 * is sampled.
+	 */
+	void mark(final int phase) {
+		final Sample sample = current.get();
+		if(sample != null) {
+			sample.mark(phase);
+		}
+	}
+	
+	/**
+	 * Sets the command the current sample is attributed to.
+	 */
+	void resolved(final CommandNode node) {
+		final Sample sample = current.get();
+		if(sample != null) {
+			sample.node = node;
+		}
+	}
+	
+	/**
+	 * Ends the sample started by {@link #begin()}. Remaining time is attributed to the error
+	 * phase if the dispatch failed, to the invoke phase otherwise.
+	 * 
+	 * @param root node samples without resolved command are attributed to
+	 * @param failed true if the dispatch failed
+	 */
+	void end(final CommandNode root, final boolean failed) {
+		final Sample sample = current.get();
+		if(sample == null) {
+			return;
+		}
+		current.remove();
+		sample.mark(failed ? ERROR : INVOKE);
+		final CommandNode node = sample.node == null ? root : sample.node;
+		NodeProfile profile = profiles.get(node);
+		if(profile == null) {
+			profile = new NodeProfile(node);
+			final NodeProfile previous = profiles.putIfAbsent(node, profile);
+			if(previous != null) {
+				profile = previous;
+			}
+		}
+		profile.add(sample);
+	}
+	
+	/**
+	 * Moves collected data of a re-registered command to its replacement.
+	 */
+	void replace(final CommandNode node, final CommandNode replacement) {
+		final NodeProfile profile = profiles.remove(node);
+		if(profile != null) {
+			final NodeProfile previous = profiles.putIfAbsent(replacement, profile);
+			if(previous != null) {
+				previous.addAll(profile);
+			}
+		}
+	}
+	
+	/**
+	 * Discards collected data of a removed command.
+	 */
+	void remove(final CommandNode node) {
+		profiles.remove(node);
+	}
+	
+	void reset() {
+		profiles.clear();
+	}
+	
+	@Override
+	public String toString() {
+		final List<NodeProfile> list = new ArrayList<NodeProfile>(profiles.values());
+		Collections.sort(list, new Comparator<NodeProfile>() {
+			@Override
+			public int compare(final NodeProfile first, final NodeProfile second) {
+				return Long.compare(second.totalBytes(), first.totalBytes());
+			}
+		});
+		final StringBuilder sb = new StringBuilder(128 + list.size() * 160);
+		sb.append("sampling 1/").append(interval).append(", allocation ")
+				.append(ALLOCATED_BYTES == null ? "not supported" : "measured");
+		for(final NodeProfile profile : list) {
+			profile.appendTo(sb.append('\n'));
+		}
+		return sb.toString();
+	}
+	
+	private static long measureOverhead() {
+		long overhead = Long.MAX_VALUE;
+		for(int i = 0; i < 16; i++) {
+			final long first = allocatedBytes();
+			overhead = Math.min(overhead, allocatedBytes() - first);
+		}
+		return overhead;
+	}
+	
+	private static long allocatedBytes() {
+		if(ALLOCATED_BYTES == null) {
+			return 0;
+		}
+		try {
+			return (Long) ALLOCATED_BYTES.invoke(THREADS, Thread.currentThread().getId());
+		}
+		catch (final Exception e) {
+			return 0;
+		}
+	}
+	
+	private static final class Sample {
+		
+		final long[] nanos = new long[PHASES.length];
+		final long[] bytes = new long[PHASES.length];
+		CommandNode node = null;
+		private long lastTime = System.nanoTime();
+		private long lastBytes = allocatedBytes();
+		
+		void mark(final int phase) {
+			final long time = System.nanoTime();
+			final long allocated = allocatedBytes();
+			nanos[phase] += time - lastTime;
+			bytes[phase] += Math.max(0, allocated - lastBytes - OVERHEAD);
+			// exclude the cost of measuring
+			lastTime = System.nanoTime();
+			lastBytes = allocatedBytes();
+		}
+	}
+	
+	private static final class NodeProfile {
+		
+		private final String name;
+		private final AtomicLong samples = new AtomicLong();
+		private final AtomicLongArray nanos = new AtomicLongArray(PHASES.length);
+		private final AtomicLongArray bytes = new AtomicLongArray(PHASES.length);
+		
+		NodeProfile(final CommandNode node) {
+			final StringBuilder sb = new StringBuilder();
+			for(CommandNode n = node; n != null && !n.isRoot(); n = n.getParent()) {
+				sb.insert(0, n.getLabels()[0]).insert(0, ' ');
+			}
+			name = sb.length() == 0 ? "<unresolved>" : sb.substring(1);
+		}
+		
+		void add(final Sample sample) {
+			samples.incrementAndGet();
+			for(int i = 0; i < PHASES.length; i++) {
+				nanos.addAndGet(i, sample.nanos[i]);
+				bytes.addAndGet(i, sample.bytes[i]);
+			}
+		}
+		
+		void addAll(final NodeProfile other) {
+			samples.addAndGet(other.samples.get());
+			for(int i = 0; i < PHASES.length; i++) {
+				nanos.addAndGet(i, other.nanos.get(i));
+				bytes.addAndGet(i, other.bytes.get(i));
+			}
+		}
+		
+		long totalBytes() {
+			long total = 0;
+			for(int i = 0; i < PHASES.length; i++) {
+				total += bytes.get(i);
+			}
+			return total;
+		}
+		
+		void appendTo(final StringBuilder sb) {
+			final long count = samples.get();
+			long totalNanos = 0;
+			for(int i = 0; i < PHASES.length; i++) {
+				totalNanos += nanos.get(i);
+			}
+			sb.append(name).append(": samples: ").append(count)
+					.append(", average: ").append(totalNanos / count).append(" ns, ")
+					.append(totalBytes() / count).append(" B");
+			for(int i = 0; i < PHASES.length; i++) {
+				sb.append(", ").append(PHASES[i]).append(' ').append(nanos.get(i) / count)
+						.append(" ns/").append(bytes.get(i) / count).append(" B");
+			}
+		}
+	}
+}
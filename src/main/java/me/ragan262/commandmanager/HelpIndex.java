@@ -0,0 +1,71 @@
+package me.ragan262.commandmanager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Precomputed help for a single command. Entries are grouped by sections in their natural order
+ * and ordered as in the command tree within each section. Every entry carries ids of all
+ * permissions required to see it, so filtering for a sender only needs a {@link PermissionProfile}.
+ * 
+ * @author raGan
+ */
+final class HelpIndex {
+	
+	private final CommandHelp[] entries;
+	private final int[][] required;
+	
+	HelpIndex(final List<CommandHelp> helps, final List<int[]> permissions) {
+		final Map<String, List<Integer>> bySection = new TreeMap<String, List<Integer>>();
+		for(int i = 0; i < helps.size(); i++) {
+			final String section = helps.get(i).getSection();
+			List<Integer> list = bySection.get(section);
+			if(list == null) {
+				list = new ArrayList<Integer>();
+				bySection.put(section, list);
+			}
+			list.add(i);
+		}
+		entries = new CommandHelp[helps.size()];
+		required = new int[helps.size()][];
+		int pos = 0;
+		for(final List<Integer> section : bySection.values()) {
+			for(final int i : section) {
+				entries[pos] = helps.get(i);
+				required[pos++] = permissions.get(i);
+			}
+		}
+	}
+	
+	CommandHelpPage getPage(final PermissionProfile profile, final int page, final int pageSize) {
+		final long skip = (long) (page - 1) * pageSize;
+		final List<CommandHelp> result = new ArrayList<CommandHelp>(Math.min(pageSize, entries.length));
+		long visible = 0;
+		for(int i = 0; i < entries.length; i++) {
+			if(!profile.hasAll(required[i])) {
+				continue;
+			}
+			if(visible++ < skip) {
+				continue;
+			}
+			if(result.size() == pageSize) {
+				return new CommandHelpPage(page, Collections.unmodifiableList(result), true);
+			}
+			result.add(entries[i]);
+		}
+		return new CommandHelpPage(page, Collections.unmodifiableList(result), false);
+	}
+	
+	int count(final PermissionProfile profile) {
+		int visible = 0;
+		for(final int[] perms : required) {
+			if(profile.hasAll(perms)) {
+				visible++;
+			}
+		}
+		return visible;
+	}
+}
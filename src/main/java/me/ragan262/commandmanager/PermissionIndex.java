@@ -0,0 +1,63 @@
+package me.ragan262.commandmanager;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bukkit.command.CommandSender;
+
+/**
+ * Assigns ids to all distinct permissions used in a command tree. Permissions with vertical bars
+ * are indexed as a whole.
+ * 
+ * @author raGan
+ */
+final class PermissionIndex {
+	
+	private final String[] permissions;
+	private final Map<String, Integer> ids;
+	
+	PermissionIndex(final CommandNode root) {
+		ids = new HashMap<String, Integer>();
+		addPermissions(root);
+		permissions = new String[ids.size()];
+		for(final Map.Entry<String, Integer> entry : ids.entrySet()) {
+			permissions[entry.getValue()] = entry.getKey();
+		}
+	}
+	
+	private void addPermissions(final CommandNode node) {
+		final String perm = node.getPermission();
+		if(!perm.isEmpty() && !ids.containsKey(perm)) {
+			ids.put(perm, ids.size());
+		}
+		for(int i = 0; i < node.keyCount(); i++) {
+			if(!node.isAlias(i)) {
+				addPermissions(node.child(i));
+			}
+		}
+	}
+	
+	/**
+	 * @param permission permission string
+	 * @return id of the permission, -1 if the permission is empty or unknown
+	 */
+	int getId(final String permission) {
+		final Integer id = ids.get(permission);
+		return id == null ? -1 : id;
+	}
+	
+	int size() {
+		return permissions.length;
+	}
+	
+	PermissionProfile createProfile(final CommandSender sender) {
+		final BitSet granted = new BitSet(permissions.length);
+		for(int i = 0; i < permissions.length; i++) {
+			if(CommandManager.hasPermission(sender, permissions[i])) {
+				granted.set(i);
+			}
+		}
+		return new PermissionProfile(this, granted);
+	}
+}
@@ -0,0 +1,61 @@
+package me.ragan262.commandmanager;
+
+import java.util.BitSet;
+
+/**
+ * Set of permissions of a command tree a sender has, indexed by {@link PermissionIndex}. Two senders
+ * with equal profiles see exactly the same commands, so anything derived from sender permissions
+ * can be cached by profile.
+ * 
+ * @author raGan
+ */
+final class PermissionProfile {
+	
+	private final PermissionIndex index;
+	private final BitSet granted;
+	private final int hash;
+	
+	PermissionProfile(final PermissionIndex index, final BitSet granted) {
+		this.index = index;
+		this.granted = granted;
+		hash = 31 * System.identityHashCode(index) + granted.hashCode();
+	}
+	
+	PermissionIndex getIndex() {
+		return index;
+	}
+	
+	/**
+	 * @param id permission id, negative id stands for no permission
+	 * @return true if the permission is granted
+	 */
+	boolean has(final int id) {
+		return id < 0 || granted.get(id);
+	}
+	
+	boolean hasAll(final int[] ids) {
+		for(final int id : ids) {
+			if(!has(id)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+	
+	@Override
+	public boolean equals(final Object obj) {
+		if(this == obj) {
+			return true;
+		}
+		if(!(obj instanceof PermissionProfile)) {
+			return false;
+		}
+		final PermissionProfile other = (PermissionProfile) obj;
+		return index == other.index && granted.equals(other.granted);
+	}
+}
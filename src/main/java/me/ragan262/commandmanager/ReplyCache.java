@@ -0,0 +1,87 @@
+package me.ragan262.commandmanager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of replies of cached commands with time-to-live. Keys are lists starting with
+ * the command node.
+ * 
+ * @author raGan
+ */
+final class ReplyCache {
+	
+	private final Map<List<Object>, CachedReply> entries;
+	
+	ReplyCache(final int maxSize) {
+		entries = new LinkedHashMap<List<Object>, CachedReply>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<List<Object>, CachedReply> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+	
+	synchronized String[] get(final List<Object> key, final long now) {
+		final CachedReply entry = entries.get(key);
+		if(entry == null) {
+			return null;
+		}
+		if(entry.expires < now) {
+			entries.remove(key);
+			return null;
+		}
+		return entry.lines;
+	}
+	
+	synchronized void put(final List<Object> key, final String[] lines, final long expires) {
+		entries.put(key, new CachedReply(lines, expires));
+	}
+	
+	synchronized void invalidate(final CommandNode node) {
+		final Iterator<List<Object>> it = entries.keySet().iterator();
+		while(it.hasNext()) {
+			if(it.next().get(0) == node) {
+				it.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Moves cached replies of a re-registered command to its replacement.
+	 */
+	synchronized void replace(final CommandNode node, final CommandNode replacement) {
+		final Map<List<Object>, CachedReply> moved = new LinkedHashMap<List<Object>, CachedReply>();
+		final Iterator<Map.Entry<List<Object>, CachedReply>> it = entries.entrySet().iterator();
+		while(it.hasNext()) {
+			final Map.Entry<List<Object>, CachedReply> entry = it.next();
+			if(entry.getKey().get(0) == node) {
+				final List<Object> key = new ArrayList<Object>(entry.getKey());
+				key.set(0, replacement);
+				moved.put(key, entry.getValue());
+				it.remove();
+			}
+		}
+		entries.putAll(moved);
+	}
+	
+	synchronized void clear() {
+		entries.clear();
+	}
+	
+	private static final class CachedReply {
+		
+		final String[] lines;
+		final long expires;
+		
+		CachedReply(final String[] lines, final long expires) {
+			this.lines = lines;
+			this.expires = expires;
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package me.ragan262.commandmanager;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * <p>Machine-readable description of a command tree. Nodes are written directly to the output
+ * while walking the tree, subcommands in the order of their main labels, so the same tree always
+ * produces the same output.</p>
+ * 
+ * <p>JSON output is a single object {@code {"version":"...","commands":[...]}}, each command being
+ * {@code {"labels":[...],"description":"...","usage":"...","permission":"...","section":"...","min":0,"max":-1,"player":false,"forceExecute":false,"blocking":false,"children":[...]}}.</p>
+ * 
+ * <p>Binary output starts with {@link #MAGIC}, format {@link #FORMAT_VERSION} byte and the tree
+ * version as long, followed by the root node. Each node is written as number of labels (short),
+ * labels, description, usage, permission and section (modified UTF-8 as written by
+ * {@link DataOutputStream#writeUTF(String)}), min and max (int), flags (byte: 1 player, 2 force
+ * execute, 4 blocking), number of subcommands (short) and subcommands. The root node has no labels
+ * and empty strings.</p>
+ * 
+ * @author raGan
+ */
+final class TreeExport {
+	
+	static final int MAGIC = 0x434D4454; // "CMDT"
+	static final int FORMAT_VERSION = 1;
+	
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	
+	private TreeExport() {
+	}
+	
+	/**
+	 * @return 64-bit FNV-1a hash of everything the export contains
+	 */
+	static long version(final CommandNode root) {
+		return hash(FNV_OFFSET, root);
+	}
+	
+	static void writeJson(final CommandNode root, final long version, final Writer out) throws IOException {
+		out.write("{\"version\":\"");
+		writeHex(version, out);
+		out.write("\",\"commands\":");
+		writeChildren(root, out);
+		out.write('}');
+		out.flush();
+	}
+	
+	static void writeBinary(final CommandNode root, final long version, final OutputStream stream) throws IOException {
+		final DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MAGIC);
+		out.writeByte(FORMAT_VERSION);
+		out.writeLong(version);
+		writeNode(root, out);
+		out.flush();
+	}
+	
+	private static void writeChildren(final CommandNode node, final Writer out) throws IOException {
+		out.write('[');
+		boolean first = true;
+		for(int i = 0; i < node.keyCount(); i++) {
+			if(node.isAlias(i)) {
+				continue;
+			}
+			if(!first) {
+				out.write(',');
+			}
+			first = false;
+			writeNode(node.child(i), out);
+		}
+		out.write(']');
+	}
+	
+	private static void writeNode(final CommandNode node, final Writer out) throws IOException {
+		out.write("{\"labels\":[");
+		final String[] labels = node.getLabels();
+		for(int i = 0; i < labels.length; i++) {
+			if(i > 0) {
+				out.write(',');
+			}
+			writeString(labels[i], out);
+		}
+		out.write("],\"description\":");
+		writeString(node.getDescription(), out);
+		out.write(",\"usage\":");
+		writeString(node.getUsage(), out);
+		out.write(",\"permission\":");
+		writeString(node.getPermission(), out);
+		out.write(",\"section\":");
+		writeString(node.getSection(), out);
+		out.write(",\"min\":");
+		out.write(Integer.toString(node.getMin()));
+		out.write(",\"max\":");
+		out.write(Integer.toString(node.getMax()));
+		out.write(",\"player\":");
+		out.write(node.isPlayerOnly() ? "true" : "false");
+		out.write(",\"forceExecute\":");
+		out.write(node.isForceExecute() ? "true" : "false");
+		out.write(",\"blocking\":");
+		out.write(node.isBlocking() ? "true" : "false");
+		out.write(",\"children\":");
+		writeChildren(node, out);
+		out.write('}');
+	}
+	
+	private static void writeString(final String str, final Writer out) throws IOException {
+		out.write('"');
+		int start = 0;
+		final int length = str.length();
+		for(int i = 0; i < length; i++) {
+			final char c = str.charAt(i);
+			if(c >= 0x20 && c != '"' && c != '\\') {
+				continue;
+			}
+			out.write(str, start, i - start);
+			start = i + 1;
+			switch(c) {
+				case '"':
+					out.write("\\\"");
+					break;
+				case '\\':
+					out.write("\\\\");
+					break;
+				case '\n':
+					out.write("\\n");
+					break;
+				case '\r':
+					out.write("\\r");
+					break;
+				case '\t':
+					out.write("\\t");
+					break;
+				default:
+					out.write("\\u00");
+					out.write(HEX[c >>> 4]);
+					out.write(HEX[c & 0xF]);
+			}
+		}
+		out.write(str, start, length - start);
+		out.write('"');
+	}
+	
+	private static void writeHex(final long value, final Writer out) throws IOException {
+		for(int shift = 60; shift >= 0; shift -= 4) {
+			out.write(HEX[(int) (value >>> shift) & 0xF]);
+		}
+	}
+	
+	private static void writeNode(final CommandNode node, final DataOutputStream out) throws IOException {
+		final String[] labels = node.getLabels();
+		out.writeShort(labels.length);
+		for(final String label : labels) {
+			out.writeUTF(label);
+		}
+		out.writeUTF(node.getDescription());
+		out.writeUTF(node.getUsage());
+		out.writeUTF(node.getPermission());
+		out.writeUTF(node.getSection());
+		out.writeInt(node.getMin());
+		out.writeInt(node.getMax());
+		out.writeByte(flags(node));
+		out.writeShort(node.labelCount());
+		for(int i = 0; i < node.keyCount(); i++) {
+			if(!node.isAlias(i)) {
+				writeNode(node.child(i), out);
+			}
+		}
+	}
+	
+	private static int flags(final CommandNode node) {
+		return (node.isPlayerOnly() ? 1 : 0) | (node.isForceExecute() ? 2 : 0) | (node.isBlocking() ? 4 : 0);
+	}
+	
+	private static long hash(long hash, final CommandNode node) {
+		final String[] labels = node.getLabels();
+		hash = hash(hash, labels.length);
+		for(final String label : labels) {
+			hash = hash(hash, label);
+		}
+		hash = hash(hash, node.getDescription());
+		hash = hash(hash, node.getUsage());
+		hash = hash(hash, node.getPermission());
+		hash = hash(hash, node.getSection());
+		hash = hash(hash, node.getMin());
+		hash = hash(hash, node.getMax());
+		hash = hash(hash, flags(node));
+		hash = hash(hash, node.labelCount());
+		for(int i = 0; i < node.keyCount(); i++) {
+			if(!node.isAlias(i)) {
+				hash = hash(hash, node.child(i));
+			}
+		}
+		return hash;
+	}
+	
+	private static long hash(long hash, final String str) {
+		final int length = str.length();
+		hash = hash(hash, length);
+		for(int i = 0; i < length; i++) {
+			final char c = str.charAt(i);
+			hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+			hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+		}
+		return hash;
+	}
+	
+	private static long hash(long hash, final int value) {
+		for(int shift = 24; shift >= 0; shift -= 8) {
+			hash = (hash ^ ((value >>> shift) & 0xFF)) * FNV_PRIME;
+		}
+		return hash;
+	}
+}
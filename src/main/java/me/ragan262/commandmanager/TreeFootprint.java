@@ -0,0 +1,94 @@
+package me.ragan262.commandmanager;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Approximate memory footprint of a command tree. Sizes are estimated for a 64-bit JVM with
+ * compressed references (12 byte object headers, 4 byte references, 8 byte alignment). Strings
+ * shared between nodes or with other trees through interning are counted once. Methods, command
+ * class instances, interceptors and argument validators are not counted.
+ * 
+ * @author raGan
+ */
+final class TreeFootprint {
+	
+	private static final int HEADER = 12;
+	private static final int ARRAY_HEADER = 16;
+	private static final int REFERENCE = 4;
+	private static final int NODE_FIELDS = 16 * REFERENCE + 5 * 4 + 8;
+	
+	private final Map<Object, Boolean> seen = new IdentityHashMap<Object, Boolean>();
+	private int nodes = 0;
+	private int labels = 0;
+	private int aliases = 0;
+	private int strings = 0;
+	private long nodeBytes = 0;
+	private long arrayBytes = 0;
+	private long stringBytes = 0;
+	
+	TreeFootprint(final CommandNode root) {
+		visit(root);
+	}
+	
+	private void visit(final CommandNode node) {
+		nodes++;
+		nodeBytes += align(HEADER + NODE_FIELDS);
+		arrayBytes += refArray(node.keyCount()) * 2 + align(ARRAY_HEADER + 4 * ((node.keyCount() + 31) >>> 5));
+		arrayBytes += refArray(node.getLabels().length);
+		if(node.completions != null) {
+			arrayBytes += refArray(node.completions.length);
+			for(final String str : node.completions) {
+				string(str);
+			}
+		}
+		if(node.validators != null) {
+			arrayBytes += refArray(node.validators.length);
+		}
+		arrayBytes += refArray(node.interceptors.length) + refArray(node.chain.length);
+		for(final String str : node.getLabels()) {
+			string(str);
+		}
+		string(node.getDescription());
+		string(node.getUsage());
+		string(node.getPermission());
+		string(node.getSection());
+		string(node.getForward());
+		for(int i = 0; i < node.keyCount(); i++) {
+			string(node.key(i));
+			if(node.isAlias(i)) {
+				aliases++;
+			}
+			else {
+				labels++;
+				visit(node.child(i));
+			}
+		}
+	}
+	
+	private void string(final String str) {
+		if(seen.put(str, Boolean.TRUE) == null) {
+			strings++;
+			stringBytes += align(HEADER + REFERENCE + 4) + align(ARRAY_HEADER + 2 * str.length());
+		}
+	}
+	
+	private static long refArray(final int length) {
+		return align(ARRAY_HEADER + REFERENCE * length);
+	}
+	
+	private static long align(final long size) {
+		return (size + 7) & ~7L;
+	}
+	
+	long getTotalBytes() {
+		return nodeBytes + arrayBytes + stringBytes;
+	}
+	
+	@Override
+	public String toString() {
+		return "nodes: " + nodes + ", labels: " + labels + ", aliases: " + aliases + ", distinct strings: "
+				+ strings + ", estimated size: " + getTotalBytes() + " B (nodes " + nodeBytes + " B, arrays "
+				+ arrayBytes + " B, strings " + stringBytes + " B)";
+	}
+}
@@ -0,0 +1,44 @@
+package me.ragan262.commandmanager.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Constraint of a single command argument, see {@link Arguments}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface Argument {
+	
+	/**
+	 * @return position of the argument, starting at 0
+	 */
+	int index();
+	
+	/**
+	 * @return type the argument is parsed into
+	 */
+	ArgumentType type() default ArgumentType.STRING;
+	
+	/**
+	 * @return minimal value of {@link ArgumentType#INTEGER INTEGER} and {@link ArgumentType#NUMBER NUMBER} arguments
+	 */
+	double min() default Double.NEGATIVE_INFINITY;
+	
+	/**
+	 * @return maximal value of {@link ArgumentType#INTEGER INTEGER} and {@link ArgumentType#NUMBER NUMBER} arguments
+	 */
+	double max() default Double.POSITIVE_INFINITY;
+	
+	/**
+	 * @return regular expression {@link ArgumentType#STRING STRING} arguments have to match, empty
+	 * string for any argument
+	 */
+	String pattern() default "";
+	
+	/**
+	 * @return allowed values of {@link ArgumentType#CHOICE CHOICE} arguments
+	 */
+	String[] choices() default {};
+}
@@ -0,0 +1,22 @@
+package me.ragan262.commandmanager.annotations;
+
+/**
+ * Types of constrained command arguments and values they are parsed into.
+ */
+public enum ArgumentType {
+	
+	/** Any string, optionally matching {@link Argument#pattern()}. Parsed into String. */
+	STRING,
+	
+	/** Integer within {@link Argument#min()} and {@link Argument#max()}. Parsed into Integer. */
+	INTEGER,
+	
+	/** Number within {@link Argument#min()} and {@link Argument#max()}. Parsed into Double. */
+	NUMBER,
+	
+	/** One of {@link Argument#choices()}, ignoring case. Parsed into the matching choice. */
+	CHOICE,
+	
+	/** Name of an online player. Parsed into Player. Not allowed in {@link Command#blocking() blocking} commands. */
+	PLAYER
+}
@@ -0,0 +1,19 @@
+package me.ragan262.commandmanager.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Declares constraints of command arguments. Constraints are checked before the command is 
+ * executed and each constrained argument is parsed only once, the parsed value is available 
+ * through {@link me.ragan262.commandmanager.context.CommandContext#getValue(int) CommandContext.getValue}.
+ * Arguments that were not entered are not checked, use {@link Command#min()} to require them.
+ * <p>
+ * Example for usage "[player] [amount]":
+ * {@code @Arguments({@Argument(index = 0, type = PLAYER), @Argument(index = 1, type = INTEGER, min = 1, max = 64)})}
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Arguments {
+	
+	Argument[] value();
+}
@@ -56,4 +56,37 @@ public @interface Command {
 	 * @return true if this command should be executed even if it's not a command tree leaf
 	 */
 	boolean forceExecute() default false;
+	
+	/**
+	 * Blocking commands are executed outside of the main thread if blocking execution is enabled in
+	 * command manager. Such commands should only perform I/O and thread-safe operations.
+	 * 
+	 * @return true if this command performs blocking operations (database, network, file access)
+	 */
+	boolean blocking() default false;
+	
+	/**
+	 * Marks the command as read-only. Replies of cached commands sent through
+	 * {@link me.ragan262.commandmanager.context.CommandContext#reply(String) CommandContext.reply}
+	 * are cached per arguments and flags, and sent again without invoking the command until the
+	 * time expires or the cache is invalidated. Messages sent directly to the sender are not cached
+	 * and invocations that reply nothing through the context are not cached at all.
+	 * 
+	 * @return time in milliseconds replies of this command are cached for, 0 to disable caching
+	 */
+	long cacheTtl() default 0;
+	
+	/**
+	 * @return true if cached replies of this command differ between senders
+	 */
+	boolean cachePerSender() default false;
+	
+	/**
+	 * Forwarded commands are sent to other servers of the network after they are successfully 
+	 * executed, if a {@link me.ragan262.commandmanager.forward.ForwardBus forward bus} is running.
+	 * 
+	 * @return group of servers the command is forwarded to, "*" for all servers, empty string if
+	 * the command is not forwarded
+	 */
+	String forward() default "";
 }
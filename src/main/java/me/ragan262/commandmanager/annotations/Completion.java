@@ -0,0 +1,16 @@
+package me.ragan262.commandmanager.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Declares completion sources for command arguments. Each value is an id of a provider registered 
+ * in {@link me.ragan262.commandmanager.completion.CompletionRegistry CompletionRegistry} and 
+ * applies to the argument at the same position (e.g. {"player", "item"} for usage "[player] [item]").
+ * Empty id means the argument has no completion.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Completion {
+	
+	String[] value();
+}
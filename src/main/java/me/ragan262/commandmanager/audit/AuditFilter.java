@@ -0,0 +1,18 @@
+package me.ragan262.commandmanager.audit;
+
+/**
+ * Decides which resolved commands are audited. See {@link AuditFilters} for common implementations.
+ * 
+ * @author raGan
+ */
+public interface AuditFilter {
+	
+	/**
+	 * @param path labels of the resolved command
+	 * @param permission {@link me.ragan262.commandmanager.annotations.Command#permission() permission} of the resolved command
+	 * @param section {@link me.ragan262.commandmanager.annotations.Command#section() section} of the resolved command
+	 * @return true if the command should be audited
+	 */
+	public boolean shouldAudit(String[] path, String permission, String section);
+	
+}
@@ -0,0 +1,92 @@
+package me.ragan262.commandmanager.audit;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Common {@link AuditFilter} implementations.
+ * 
+ * @author raGan
+ */
+public final class AuditFilters {
+	
+	/**
+	 * Filter that audits every command.
+	 */
+	public static final AuditFilter ALL = new AuditFilter() {
+		@Override
+		public boolean shouldAudit(final String[] path, final String permission, final String section) {
+			return true;
+		}
+	};
+	
+	private AuditFilters() {}
+	
+	/**
+	 * Audits commands with at least one permission starting with one of the specified prefixes.
+	 * Permissions separated by vertical bars are checked separately.
+	 * 
+	 * @param prefixes permission prefixes (e.g. "example.admin.")
+	 * @return permission filter
+	 */
+	public static AuditFilter permissionPrefix(final String... prefixes) {
+		Validate.notNull(prefixes, "Prefixes can't be null.");
+		final String[] copy = Arrays.copyOf(prefixes, prefixes.length);
+		return new AuditFilter() {
+			@Override
+			public boolean shouldAudit(final String[] path, final String permission, final String section) {
+				if(permission.isEmpty()) {
+					return false;
+				}
+				for(final String perm : permission.split("\\|\\|")) {
+					for(final String prefix : copy) {
+						if(perm.startsWith(prefix)) {
+							return true;
+						}
+					}
+				}
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * Audits commands in one of the specified sections. Section names are case sensitive.
+	 * 
+	 * @param sections audited sections
+	 * @return section filter
+	 */
+	public static AuditFilter sections(final String... sections) {
+		Validate.notNull(sections, "Sections can't be null.");
+		final Set<String> set = new HashSet<String>(Arrays.asList(sections));
+		return new AuditFilter() {
+			@Override
+			public boolean shouldAudit(final String[] path, final String permission, final String section) {
+				return set.contains(section);
+			}
+		};
+	}
+	
+	/**
+	 * @param filters filters to combine
+	 * @return filter that audits the command if at least one of the specified filters does
+	 */
+	public static AuditFilter any(final AuditFilter... filters) {
+		Validate.notNull(filters, "Filters can't be null.");
+		final AuditFilter[] copy = Arrays.copyOf(filters, filters.length);
+		return new AuditFilter() {
+			@Override
+			public boolean shouldAudit(final String[] path, final String permission, final String section) {
+				for(final AuditFilter filter : copy) {
+					if(filter.shouldAudit(path, permission, section)) {
+						return true;
+					}
+				}
+				return false;
+			}
+		};
+	}
+}
@@ -0,0 +1,41 @@
+package me.ragan262.commandmanager.audit;
+
+/**
+ * Result of a single audited command dispatch.
+ * 
+ * @author raGan
+ */
+public enum AuditOutcome {
+	
+	/**
+	 * Command method was invoked and returned normally.
+	 */
+	SUCCESS,
+	
+	/**
+	 * Sender was refused because of missing permission or player context.
+	 */
+	DENIED,
+	
+	/**
+	 * A {@link me.ragan262.commandmanager.CommandInterceptor command interceptor} stopped the chain, 
+	 * so the command method was not invoked.
+	 */
+	VETOED,
+	
+	/**
+	 * Command was resolved, but its arguments did not match {@link me.ragan262.commandmanager.annotations.Command#min() min()} 
+	 * or {@link me.ragan262.commandmanager.annotations.Command#max() max()}, or the command itself threw usage exception.
+	 */
+	USAGE,
+	
+	/**
+	 * Command method threw a {@link me.ragan262.commandmanager.exceptions.CommandException CommandException}.
+	 */
+	FAILED,
+	
+	/**
+	 * Command method threw any other exception.
+	 */
+	ERROR
+}
@@ -0,0 +1,19 @@
+package me.ragan262.commandmanager.audit;
+
+/**
+ * Determines what happens to an audit event when the audit buffer is full.
+ * 
+ * @author raGan
+ */
+public enum AuditOverflowPolicy {
+	
+	/**
+	 * Event is discarded and counted as dropped. Dispatching thread never waits.
+	 */
+	DROP,
+	
+	/**
+	 * Dispatching thread waits until the writer frees some space in the buffer.
+	 */
+	BLOCK
+}
@@ -0,0 +1,80 @@
+package me.ragan262.commandmanager.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer single-consumer ring buffer. Each slot carries a sequence
+ * number, producers claim slots by advancing the head cursor and publish them by bumping the
+ * slot sequence. Only one thread may call {@link #poll()}.
+ * 
+ * @author raGan
+ */
+final class AuditRingBuffer {
+	
+	private final int mask;
+	private final AtomicReferenceArray<CommandAuditEvent> slots;
+	private final AtomicLongArray sequences;
+	private final AtomicLong head = new AtomicLong();
+	private volatile long tail = 0;
+	
+	AuditRingBuffer(final int capacity) {
+		if(capacity < 2) {
+			throw new IllegalArgumentException("Capacity must be at least 2.");
+		}
+		int size = Integer.highestOneBit(capacity);
+		if(size < capacity) {
+			size <<= 1;
+		}
+		mask = size - 1;
+		slots = new AtomicReferenceArray<CommandAuditEvent>(size);
+		sequences = new AtomicLongArray(size);
+		for(int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+	
+	boolean offer(final CommandAuditEvent event) {
+		long pos = head.get();
+		while(true) {
+			final int index = (int) pos & mask;
+			final long diff = sequences.get(index) - pos;
+			if(diff == 0) {
+				if(head.compareAndSet(pos, pos + 1)) {
+					slots.lazySet(index, event);
+					sequences.lazySet(index, pos + 1);
+					return true;
+				}
+				pos = head.get();
+			}
+			else if(diff < 0) {
+				return false; // full
+			}
+			else {
+				pos = head.get();
+			}
+		}
+	}
+	
+	CommandAuditEvent poll() {
+		final long pos = tail;
+		final int index = (int) pos & mask;
+		if(sequences.get(index) != pos + 1) {
+			return null; // empty or not yet published
+		}
+		final CommandAuditEvent event = slots.get(index);
+		slots.lazySet(index, null);
+		sequences.lazySet(index, pos + mask + 1);
+		tail = pos + 1;
+		return event;
+	}
+	
+	int size() {
+		return (int) Math.max(0, head.get() - tail);
+	}
+	
+	int capacity() {
+		return mask + 1;
+	}
+}
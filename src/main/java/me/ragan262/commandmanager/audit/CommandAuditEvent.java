@@ -0,0 +1,106 @@
+package me.ragan262.commandmanager.audit;
+
+import java.util.Arrays;
+
+/**
+ * Immutable record of a single command dispatch passed to {@link CommandAuditor}.
+ * 
+ * @author raGan
+ */
+public final class CommandAuditEvent {
+	
+	private final long timestamp;
+	private final String[] path;
+	private final String sender;
+	private final String[] arguments;
+	private final AuditOutcome outcome;
+	private final long duration;
+	
+	public CommandAuditEvent(final long timestamp, final String[] path, final String sender, final String[] arguments, final AuditOutcome outcome, final long duration) {
+		this.timestamp = timestamp;
+		this.path = path;
+		this.sender = sender;
+		this.arguments = arguments;
+		this.outcome = outcome;
+		this.duration = duration;
+	}
+	
+	/**
+	 * @return time of the dispatch in milliseconds since epoch
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+	
+	/**
+	 * @return labels of the resolved command (parent arguments)
+	 */
+	public String[] getPath() {
+		return Arrays.copyOf(path, path.length);
+	}
+	
+	/**
+	 * @return name of the command sender
+	 */
+	public String getSender() {
+		return sender;
+	}
+	
+	/**
+	 * @return context arguments the command was executed with
+	 */
+	public String[] getArguments() {
+		return Arrays.copyOf(arguments, arguments.length);
+	}
+	
+	public AuditOutcome getOutcome() {
+		return outcome;
+	}
+	
+	/**
+	 * @return time spent on context creation and command execution in nanoseconds
+	 */
+	public long getDuration() {
+		return duration;
+	}
+	
+	/**
+	 * Appends single line representation of this event to the builder. Fields are separated by
+	 * tabs, tabs and line breaks inside of the fields are replaced by spaces.
+	 * 
+	 * @param builder builder to append to
+	 * @return the same builder
+	 */
+	public StringBuilder appendTo(final StringBuilder builder) {
+		builder.append(timestamp).append('\t');
+		appendEscaped(builder, sender).append('\t');
+		appendJoined(builder, path).append('\t');
+		appendJoined(builder, arguments).append('\t');
+		builder.append(outcome.name()).append('\t');
+		builder.append(duration / 1000L).append("us");
+		return builder;
+	}
+	
+	@Override
+	public String toString() {
+		return appendTo(new StringBuilder()).toString();
+	}
+	
+	private static StringBuilder appendJoined(final StringBuilder builder, final String[] strs) {
+		for(int i = 0; i < strs.length; i++) {
+			if(i > 0) {
+				builder.append(' ');
+			}
+			appendEscaped(builder, strs[i]);
+		}
+		return builder;
+	}
+	
+	private static StringBuilder appendEscaped(final StringBuilder builder, final String str) {
+		for(int i = 0; i < str.length(); i++) {
+			final char c = str.charAt(i);
+			builder.append(c == '\t' || c == '\n' || c == '\r' ? ' ' : c);
+		}
+		return builder;
+	}
+}
@@ -0,0 +1,18 @@
+package me.ragan262.commandmanager.audit;
+
+/**
+ * Receives audit events from {@link me.ragan262.commandmanager.CommandManager CommandManager}.
+ * 
+ * @author raGan
+ */
+public interface CommandAuditor {
+	
+	/**
+	 * Called on the dispatching thread after every audited command. Implementations must not 
+	 * block for long and should not throw any exceptions.
+	 * 
+	 * @param event audit event
+	 */
+	public void record(CommandAuditEvent event);
+	
+}
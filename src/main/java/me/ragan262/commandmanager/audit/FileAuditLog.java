@@ -0,0 +1,236 @@
+package me.ragan262.commandmanager.audit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * <p>{@link CommandAuditor} that writes audit events into rotating append-only files. Events are
+ * put into a bounded lock-free buffer by the dispatching thread and written in batches by a
+ * background writer thread, so the dispatching thread never touches the file system.</p>
+ * 
+ * <p>When the active file exceeds maximal size, it is renamed to "&lt;name&gt;.1", older files
+ * are shifted ("&lt;name&gt;.1" to "&lt;name&gt;.2" and so on) and the oldest one is deleted.</p>
+ * 
+ * @author raGan
+ */
+public class FileAuditLog implements CommandAuditor {
+	
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int BATCH_SIZE = 256;
+	private static final long IDLE_PARK = 10000000L; // 10 ms
+	private static final long FULL_PARK = 50000L; // 50 us
+	
+	private final Logger logger;
+	private final File file;
+	private final AuditRingBuffer buffer;
+	private final AuditOverflowPolicy policy;
+	private final long maxFileSize;
+	private final int maxFiles;
+	private final AtomicLong dropped = new AtomicLong();
+	
+	private final StringBuilder lineBuilder = new StringBuilder(256);
+	private FileChannel channel = null;
+	private Thread writer = null;
+	private volatile boolean running = false;
+	
+	/**
+	 * Creates new file audit log. Writer thread is not started until {@link #start()} is called.
+	 * 
+	 * @param logger logger to log I/O errors
+	 * @param file active log file
+	 * @param capacity capacity of the event buffer, rounded up to the nearest power of two
+	 * @param policy what to do with events when the buffer is full
+	 * @param maxFileSize size in bytes after which the active file is rotated, non-positive value disables rotation
+	 * @param maxFiles number of rotated files to keep
+	 */
+	public FileAuditLog(final Logger logger, final File file, final int capacity, final AuditOverflowPolicy policy, final long maxFileSize, final int maxFiles) {
+		Validate.notNull(logger, "Logger can't be null.");
+		Validate.notNull(file, "File can't be null.");
+		Validate.notNull(policy, "Overflow policy can't be null.");
+		this.logger = logger;
+		this.file = file;
+		this.buffer = new AuditRingBuffer(capacity);
+		this.policy = policy;
+		this.maxFileSize = maxFileSize;
+		this.maxFiles = Math.max(0, maxFiles);
+	}
+	
+	/**
+	 * Starts the writer thread.
+	 */
+	public synchronized void start() {
+		if(running) {
+			return;
+		}
+		running = true;
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeLoop();
+			}
+		}, "CommandManager audit writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+	
+	/**
+	 * Stops the writer thread, writes all remaining events and closes the file.
+	 */
+	public void close() {
+		final Thread thread;
+		synchronized(this) {
+			if(!running) {
+				return;
+			}
+			running = false;
+			thread = writer;
+			writer = null;
+		}
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	@Override
+	public void record(final CommandAuditEvent event) {
+		if(!running) {
+			dropped.incrementAndGet();
+			return;
+		}
+		if(buffer.offer(event)) {
+			return;
+		}
+		if(policy == AuditOverflowPolicy.BLOCK) {
+			while(running && !buffer.offer(event)) {
+				LockSupport.unpark(writer);
+				LockSupport.parkNanos(FULL_PARK);
+			}
+			if(running) {
+				return;
+			}
+		}
+		dropped.incrementAndGet();
+	}
+	
+	/**
+	 * @return number of events dropped because the buffer was full or the log was not running
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+	
+	/**
+	 * @return number of events waiting to be written
+	 */
+	public int getPendingCount() {
+		return buffer.size();
+	}
+	
+	private void writeLoop() {
+		try {
+			while(running) {
+				if(writeBatch() == 0) {
+					LockSupport.parkNanos(IDLE_PARK);
+				}
+			}
+			while(writeBatch() > 0) {
+				// drain remaining events
+			}
+		}
+		finally {
+			closeChannel();
+		}
+	}
+	
+	private int writeBatch() {
+		lineBuilder.setLength(0);
+		int count = 0;
+		CommandAuditEvent event;
+		while(count < BATCH_SIZE && (event = buffer.poll()) != null) {
+			event.appendTo(lineBuilder).append('\n');
+			count++;
+		}
+		if(count > 0) {
+			write(UTF8.encode(lineBuilder.toString()));
+		}
+		return count;
+	}
+	
+	private void write(final ByteBuffer bytes) {
+		try {
+			if(channel == null) {
+				openChannel();
+			}
+			while(bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+			if(maxFileSize > 0 && channel.size() >= maxFileSize) {
+				rotate();
+			}
+		}
+		catch (final IOException e) {
+			logger.log(Level.WARNING, "Failed to write command audit log '" + file.getPath() + "'.", e);
+			closeChannel();
+		}
+	}
+	
+	private void openChannel() throws IOException {
+		final File parent = file.getAbsoluteFile().getParentFile();
+		if(parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Could not create directory '" + parent.getPath() + "'.");
+		}
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+	}
+	
+	private void rotate() throws IOException {
+		closeChannel();
+		if(maxFiles == 0) {
+			if(!file.delete()) {
+				throw new IOException("Could not delete '" + file.getPath() + "'.");
+			}
+			return;
+		}
+		final File oldest = rotated(maxFiles);
+		if(oldest.exists() && !oldest.delete()) {
+			throw new IOException("Could not delete '" + oldest.getPath() + "'.");
+		}
+		for(int i = maxFiles - 1; i > 0; i--) {
+			final File f = rotated(i);
+			if(f.exists() && !f.renameTo(rotated(i + 1))) {
+				throw new IOException("Could not rename '" + f.getPath() + "'.");
+			}
+		}
+		if(!file.renameTo(rotated(1))) {
+			throw new IOException("Could not rename '" + file.getPath() + "'.");
+		}
+	}
+	
+	private File rotated(final int index) {
+		return new File(file.getPath() + '.' + index);
+	}
+	
+	private void closeChannel() {
+		if(channel != null) {
+			try {
+				channel.close();
+			}
+			catch (final IOException ignore) {}
+			channel = null;
+		}
+	}
+}
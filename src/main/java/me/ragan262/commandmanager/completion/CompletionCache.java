@@ -0,0 +1,57 @@
+package me.ragan262.commandmanager.completion;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of completion results with time-to-live.
+ * 
+ * @author raGan
+ */
+final class CompletionCache {
+	
+	private final Map<String, CachedResult> entries;
+	
+	CompletionCache(final int maxSize) {
+		entries = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, CachedResult> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+	
+	synchronized List<String> get(final String key, final long now) {
+		final CachedResult entry = entries.get(key);
+		if(entry == null) {
+			return null;
+		}
+		if(entry.expires < now) {
+			entries.remove(key);
+			return null;
+		}
+		return entry.values;
+	}
+	
+	synchronized void put(final String key, final List<String> values, final long expires) {
+		entries.put(key, new CachedResult(values, expires));
+	}
+	
+	synchronized void clear() {
+		entries.clear();
+	}
+	
+	private static final class CachedResult {
+		
+		final List<String> values;
+		final long expires;
+		
+		CachedResult(final List<String> values, final long expires) {
+			this.values = values;
+			this.expires = expires;
+		}
+	}
+}
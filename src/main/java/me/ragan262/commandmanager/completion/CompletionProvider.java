@@ -0,0 +1,26 @@
+package me.ragan262.commandmanager.completion;
+
+import java.util.List;
+
+import org.bukkit.command.CommandSender;
+
+/**
+ * Source of completion values for a command argument.
+ * 
+ * @author raGan
+ */
+public interface CompletionProvider {
+	
+	/**
+	 * Generates completions for the argument. Providers registered as asynchronous are called from
+	 * a background thread and their results are cached by prefix, so they must not depend on 
+	 * anything but the prefix and must not use the server API that isn't thread safe.
+	 * 
+	 * @param sender sender requesting completion
+	 * @param previousArgs command arguments before the completed one, excluding command labels
+	 * @param prefix already entered part of the argument
+	 * @return completion values starting with the prefix, ignoring case
+	 */
+	public List<String> complete(CommandSender sender, String[] previousArgs, String prefix);
+	
+}
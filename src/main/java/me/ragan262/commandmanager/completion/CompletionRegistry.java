@@ -0,0 +1,247 @@
+package me.ragan262.commandmanager.completion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.command.CommandSender;
+
+/**
+ * <p>Registry of {@link CompletionProvider completion providers} referenced by 
+ * {@link me.ragan262.commandmanager.annotations.Completion Completion} annotation.</p>
+ * 
+ * <p>Synchronous providers are called directly. Asynchronous providers never block the calling
+ * thread: completion returns the cached result for the prefix if there is one, otherwise it
+ * filters the cached result of the longest shorter prefix (or returns an empty list) and
+ * schedules the provider in the background. Results are cached per provider, previous arguments,
+ * prefix and, unless the provider is registered as shared between senders, sender name in a 
+ * bounded LRU cache until their time-to-live expires.</p>
+ * 
+ * @author raGan
+ */
+public class CompletionRegistry {
+	
+	private final Logger logger;
+	private final ConcurrentMap<String, Registration> providers = new ConcurrentHashMap<String, Registration>();
+	private final ConcurrentMap<String, Boolean> pending = new ConcurrentHashMap<String, Boolean>();
+	private final CompletionCache cache;
+	private Executor executor;
+	private ExecutorService ownExecutor = null;
+	
+	/**
+	 * Creates new registry that runs asynchronous providers in its own background thread.
+	 * 
+	 * @param logger logger to log provider fails
+	 * @param cacheSize maximal number of cached results
+	 */
+	public CompletionRegistry(final Logger logger, final int cacheSize) {
+		this(logger, cacheSize, null);
+	}
+	
+	/**
+	 * @param logger logger to log provider fails
+	 * @param cacheSize maximal number of cached results
+	 * @param executor executor to run asynchronous providers, if it is null, single background thread will be used
+	 */
+	public CompletionRegistry(final Logger logger, final int cacheSize, final Executor executor) {
+		Validate.notNull(logger, "Logger can't be null.");
+		Validate.isTrue(cacheSize > 0, "Cache size must be positive.");
+		this.logger = logger;
+		this.cache = new CompletionCache(cacheSize);
+		this.executor = executor;
+	}
+	
+	/**
+	 * Registers provider called directly on the completing thread.
+	 * 
+	 * @param id provider id
+	 * @param provider provider
+	 */
+	public void register(final String id, final CompletionProvider provider) {
+		Validate.notNull(id, "Id can't be null.");
+		Validate.notNull(provider, "Provider can't be null.");
+		providers.put(id, new Registration(provider, false, 0, false));
+	}
+	
+	/**
+	 * Registers provider called in the background with results cached per sender, previous 
+	 * arguments and prefix.
+	 * 
+	 * @param id provider id
+	 * @param provider provider
+	 * @param ttl time in milliseconds the results are cached for
+	 */
+	public void registerAsync(final String id, final CompletionProvider provider, final long ttl) {
+		registerAsync(id, provider, ttl, true);
+	}
+	
+	/**
+	 * Registers provider called in the background with results cached per previous arguments 
+	 * and prefix.
+	 * 
+	 * @param id provider id
+	 * @param provider provider
+	 * @param ttl time in milliseconds the results are cached for
+	 * @param perSender true if results depend on the sender, false if they can be shared between senders
+	 */
+	public void registerAsync(final String id, final CompletionProvider provider, final long ttl, final boolean perSender) {
+		Validate.notNull(id, "Id can't be null.");
+		Validate.notNull(provider, "Provider can't be null.");
+		Validate.isTrue(ttl > 0, "Time to live must be positive.");
+		providers.put(id, new Registration(provider, true, ttl, perSender));
+		invalidate();
+	}
+	
+	public void unregister(final String id) {
+		providers.remove(id);
+		invalidate();
+	}
+	
+	/**
+	 * Clears all cached results.
+	 */
+	public void invalidate() {
+		cache.clear();
+	}
+	
+	/**
+	 * Stops the background thread if the registry created one. Executor passed to the constructor
+	 * is not affected. Asynchronous providers are not called after shutdown.
+	 */
+	public synchronized void shutdown() {
+		if(ownExecutor != null) {
+			ownExecutor.shutdown();
+		}
+	}
+	
+	/**
+	 * @param id provider id
+	 * @param sender sender requesting completion
+	 * @param previousArgs command arguments before the completed one
+	 * @param prefix already entered part of the argument
+	 * @return completion values, never null
+	 */
+	public List<String> complete(final String id, final CommandSender sender, final String[] previousArgs, final String prefix) {
+		final Registration reg = providers.get(id);
+		if(reg == null) {
+			return Collections.emptyList();
+		}
+		if(!reg.async) {
+			return call(reg.provider, sender, previousArgs, prefix);
+		}
+		final String lcPrefix = prefix.toLowerCase(Locale.ENGLISH);
+		final String context = context(id, reg.perSender ? sender.getName() : "", previousArgs);
+		final long now = System.currentTimeMillis();
+		final List<String> cached = cache.get(context + lcPrefix, now);
+		if(cached != null) {
+			return cached;
+		}
+		schedule(context + lcPrefix, reg, sender, previousArgs, prefix);
+		for(int length = lcPrefix.length() - 1; length >= 0; length--) {
+			final List<String> partial = cache.get(context + lcPrefix.substring(0, length), now);
+			if(partial != null) {
+				return filter(partial, prefix);
+			}
+		}
+		return Collections.emptyList();
+	}
+	
+	private void schedule(final String key, final Registration reg, final CommandSender sender, final String[] previousArgs, final String prefix) {
+		if(pending.putIfAbsent(key, Boolean.TRUE) != null) {
+			return; // already being computed
+		}
+		try {
+			getExecutor().execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						final List<String> result = call(reg.provider, sender, previousArgs, prefix);
+						cache.put(key, result, System.currentTimeMillis() + reg.ttl);
+					}
+					finally {
+						pending.remove(key);
+					}
+				}
+			});
+		}
+		catch (final RejectedExecutionException e) {
+			pending.remove(key);
+		}
+	}
+	
+	private List<String> call(final CompletionProvider provider, final CommandSender sender, final String[] previousArgs, final String prefix) {
+		try {
+			final List<String> result = provider.complete(sender, previousArgs, prefix);
+			if(result == null) {
+				return Collections.emptyList();
+			}
+			return Collections.unmodifiableList(new ArrayList<String>(result));
+		}
+		catch (final Exception e) {
+			logger.log(Level.WARNING, "Completion provider failed.", e);
+			return Collections.emptyList();
+		}
+	}
+	
+	private synchronized Executor getExecutor() {
+		if(executor == null) {
+			ownExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable r) {
+					final Thread thread = new Thread(r, "CommandManager completion");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			executor = ownExecutor;
+		}
+		return executor;
+	}
+	
+	/**
+	 * @return cache key without the prefix, the prefix is appended to it
+	 */
+	private static String context(final String id, final String sender, final String[] previousArgs) {
+		final StringBuilder sb = new StringBuilder(id).append('\u0000').append(sender);
+		for(final String arg : previousArgs) {
+			sb.append('\u0000').append(arg);
+		}
+		return sb.append('\u0001').toString();
+	}
+	
+	private static List<String> filter(final List<String> values, final String prefix) {
+		final List<String> result = new ArrayList<String>();
+		for(final String value : values) {
+			if(value.regionMatches(true, 0, prefix, 0, prefix.length())) {
+				result.add(value);
+			}
+		}
+		return result;
+	}
+	
+	private static final class Registration {
+		
+		final CompletionProvider provider;
+		final boolean async;
+		final long ttl;
+		final boolean perSender;
+		
+		Registration(final CompletionProvider provider, final boolean async, final long ttl, final boolean perSender) {
+			this.provider = provider;
+			this.async = async;
+			this.ttl = ttl;
+			this.perSender = perSender;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package me.ragan262.commandmanager.context;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -22,6 +23,8 @@ public class CommandContext {
 	private final String[] parentArgs;
 	private final CommandSender sender;
 	private final Set<Character> flags;
+	private ReplyBuffer reply = null;
+	private Object[] values = null;
 	
 	//	map valueFlags will be added once it is needed :)
 	//	private final Map<String, String> valueFlags;
@@ -41,6 +44,8 @@ public class CommandContext {
 		this.comMan = context.comMan;
 		this.sender = context.sender;
 		this.flags = context.flags;
+		this.reply = context.reply;
+		this.values = context.values;
 	}
 	
 	protected CommandContext(final String[] args, final String[] parentArgs, final CommandSender sender, final CommandManager cMan) {
@@ -122,7 +127,12 @@ public class CommandContext {
 			}
 			System.arraycopy(this.args, level, args, 0, argLength);
 			
-			return new CommandContext(args, parentArgs, sender, comMan, flags);
+			final CommandContext result = new CommandContext(args, parentArgs, sender, comMan, flags);
+			result.reply = reply;
+			if(values != null && values.length > level) {
+				result.values = Arrays.copyOfRange(values, level, values.length);
+			}
+			return result;
 		}
 		return null;
 	}
@@ -161,10 +171,18 @@ public class CommandContext {
 	}
 	
 	public int getInt(final int i) throws NumberFormatException {
+		final Object value = getValue(i);
+		if(value instanceof Integer) {
+			return (Integer) value;
+		}
 		return Integer.parseInt(args[i]);
 	}
 	
 	public int getInt(final int i, final int def) {
+		final Object value = getValue(i);
+		if(value instanceof Integer) {
+			return (Integer) value;
+		}
 		try {
 			return Integer.parseInt(args[i]);
 		}
@@ -174,10 +192,18 @@ public class CommandContext {
 	}
 	
 	public double getDouble(final int i) throws NumberFormatException {
+		final Object value = getValue(i);
+		if(value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
 		return Double.parseDouble(args[i]);
 	}
 	
 	public double getDouble(final int i, final double def) {
+		final Object value = getValue(i);
+		if(value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
 		try {
 			return Double.parseDouble(args[i]);
 		}
@@ -186,10 +212,67 @@ public class CommandContext {
 		}
 	}
 	
+	/**
+	 * Gets the value an argument was parsed into when its {@link me.ragan262.commandmanager.annotations.Argument
+	 * constraint} was checked: Integer, Double, Player or String depending on the argument type.
+	 * 
+	 * @param i index of the argument
+	 * @return parsed value, or null if the argument has no constraint or was not entered
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getValue(final int i) {
+		return values == null || i < 0 || i >= values.length ? null : (T) values[i];
+	}
+	
+	/**
+	 * Sets parsed values of constrained arguments. Used by command manager.
+	 * 
+	 * @param values values indexed by argument positions, null if there are none
+	 */
+	public void setValues(final Object[] values) {
+		this.values = values;
+	}
+	
 	public boolean hasFlag(final char character) {
 		return flags.contains(character);
 	}
 	
+	/**
+	 * @return all flags of this context
+	 */
+	public Set<Character> getFlags() {
+		return Collections.unmodifiableSet(flags);
+	}
+	
+	/**
+	 * Sends a message to the sender of the command. Unlike sending it directly, messages sent this
+	 * way can be collected by command manager, for example to cache replies of cached commands. 
+	 * Replies sent after the command finished are sent to the sender directly.
+	 * 
+	 * @param message message to send
+	 */
+	public void reply(final String message) {
+		if(reply == null || !reply.add(message)) {
+			sender.sendMessage(message);
+		}
+	}
+	
+	/**
+	 * Sets the buffer replies are collected into. Used by command manager.
+	 * 
+	 * @param buffer buffer to collect replies into, null to send them to the sender directly
+	 */
+	public void setReplyBuffer(final ReplyBuffer buffer) {
+		reply = buffer;
+	}
+	
+	/**
+	 * @return buffer replies are collected into, null if they are sent to the sender directly
+	 */
+	public ReplyBuffer getReplyBuffer() {
+		return reply;
+	}
+	
 	public String[] getArgs() {
 		return Arrays.copyOf(args, args.length);
 	}
@@ -0,0 +1,110 @@
+package me.ragan262.commandmanager.context;
+
+import java.util.Arrays;
+
+import org.bukkit.command.CommandSender;
+
+/**
+ * Collects reply lines of a command sent through {@link CommandContext#reply(String)}. Once the 
+ * command finishes, the buffer is closed and contexts holding it send replies directly. Adding and
+ * closing are synchronized, so a line is either collected or refused, never lost.
+ * 
+ * @author raGan
+ */
+public class ReplyBuffer {
+	
+	private static final int INITIAL_CAPACITY = 8;
+	private static final int MAX_RETAINED_CAPACITY = 256;
+	
+	private String[] lines = new String[INITIAL_CAPACITY];
+	private int size = 0;
+	private volatile boolean closed = false;
+	
+	/**
+	 * @param line line to collect
+	 * @return false if the buffer is closed and the line wasn't collected
+	 */
+	public synchronized boolean add(final String line) {
+		if(closed) {
+			return false;
+		}
+		if(size == lines.length) {
+			lines = Arrays.copyOf(lines, size * 2);
+		}
+		lines[size++] = line;
+		return true;
+	}
+	
+	/**
+	 * @param added lines to collect
+	 * @return false if the buffer is closed and no line was collected
+	 */
+	public synchronized boolean addAll(final String[] added) {
+		if(closed) {
+			return false;
+		}
+		if(size + added.length > lines.length) {
+			lines = Arrays.copyOf(lines, Math.max(size * 2, size + added.length));
+		}
+		System.arraycopy(added, 0, lines, size, added.length);
+		size += added.length;
+		return true;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * @return copy of collected lines
+	 */
+	public String[] toArray() {
+		return Arrays.copyOf(lines, size);
+	}
+	
+	/**
+	 * Sends collected lines to the sender as a single message array. Nothing is sent if the buffer
+	 * is empty.
+	 * 
+	 * @param sender sender to send lines to
+	 */
+	public void sendTo(final CommandSender sender) {
+		if(size == 1) {
+			sender.sendMessage(lines[0]);
+		}
+		else if(size > 1) {
+			sender.sendMessage(toArray());
+		}
+	}
+	
+	/**
+	 * Marks the buffer as closed. Lines collected so far are kept.
+	 */
+	public synchronized void close() {
+		closed = true;
+	}
+	
+	/**
+	 * @return true if the command the buffer belongs to already finished
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+	
+	/**
+	 * Removes all lines. Large buffers are shrunk, so a single long reply doesn't keep the memory.
+	 */
+	public void clear() {
+		if(lines.length > MAX_RETAINED_CAPACITY) {
+			lines = new String[INITIAL_CAPACITY];
+		}
+		else {
+			Arrays.fill(lines, 0, size, null);
+		}
+		size = 0;
+	}
+}
@@ -0,0 +1,27 @@
+package me.ragan262.commandmanager.exceptions;
+
+import me.ragan262.commandmanager.CommandInterceptor;
+
+/**
+ * Passed to interceptors as the error when an inner interceptor stopped the chain and the command
+ * was not executed, then thrown by {@link me.ragan262.commandmanager.CommandManager#execute(String[], org.bukkit.command.CommandSender) execute}.
+ * Safe execution methods report the command as not executed and send no message, the interceptor 
+ * is expected to explain the refusal. Use {@link CommandInterceptor#VETOED} instead of creating 
+ * new instances.
+ * 
+ * @author raGan
+ */
+public final class CommandVetoedException extends CommandException {
+	
+	private static final long serialVersionUID = 3684179640253618751L;
+	
+	public CommandVetoedException() {
+		super("Command was stopped by an interceptor.");
+	}
+	
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return this;
+	}
+	
+}
@@ -0,0 +1,105 @@
+package me.ragan262.commandmanager.format;
+
+import me.ragan262.commandmanager.CommandHelp;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.ChatColor;
+
+/**
+ * <p>Immutable template describing how help lines and error messages are formatted. Formatted 
+ * help lines are cached by {@link CommandHelp} objects and formatted error messages by 
+ * {@link FormattedCommandLang} objects, so templates should be reused rather than recreated.</p>
+ * 
+ * <p>Help line format is "&lt;command prefix&gt;&lt;command&gt;&lt;usage prefix&gt;&lt;usage&gt;&lt;description prefix&gt;&lt;description&gt;",
+ * where usage and description parts are omitted if they are empty. Error format is "&lt;error prefix&gt;&lt;message&gt;".</p>
+ * 
+ * @author raGan
+ */
+public final class CommandFormat {
+	
+	/**
+	 * Default format, gold usage, gray description and red errors.
+	 */
+	public static final CommandFormat DEFAULT = new CommandFormat("", ChatColor.GOLD + " ", ChatColor.GRAY + " - ",
+			ChatColor.RED.toString());
+	
+	private static final int MAX_BUILDER_CAPACITY = 1024;
+	private static final ThreadLocal<StringBuilder> builder = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(128);
+		}
+	};
+	
+	private final String commandPrefix;
+	private final String usagePrefix;
+	private final String descriptionPrefix;
+	private final String errorPrefix;
+	
+	public CommandFormat(final String commandPrefix, final String usagePrefix, final String descriptionPrefix, final String errorPrefix) {
+		Validate.notNull(commandPrefix, "Command prefix can't be null.");
+		Validate.notNull(usagePrefix, "Usage prefix can't be null.");
+		Validate.notNull(descriptionPrefix, "Description prefix can't be null.");
+		Validate.notNull(errorPrefix, "Error prefix can't be null.");
+		this.commandPrefix = commandPrefix;
+		this.usagePrefix = usagePrefix;
+		this.descriptionPrefix = descriptionPrefix;
+		this.errorPrefix = errorPrefix;
+	}
+	
+	public String getCommandPrefix() {
+		return commandPrefix;
+	}
+	
+	public String getUsagePrefix() {
+		return usagePrefix;
+	}
+	
+	public String getDescriptionPrefix() {
+		return descriptionPrefix;
+	}
+	
+	public String getErrorPrefix() {
+		return errorPrefix;
+	}
+	
+	/**
+	 * Formats help line without using help's cache. Use {@link CommandHelp#getFormattedHelp(CommandFormat)} instead.
+	 * 
+	 * @param help help to format
+	 * @return formatted help line
+	 */
+	public String formatHelp(final CommandHelp help) {
+		final StringBuilder sb = acquireBuilder();
+		sb.append(commandPrefix).append(help.getCommandString());
+		if(!help.getUsage().isEmpty()) {
+			sb.append(usagePrefix).append(help.getUsage());
+		}
+		if(!help.getDescription().isEmpty()) {
+			sb.append(descriptionPrefix).append(help.getDescription());
+		}
+		return release(sb);
+	}
+	
+	/**
+	 * @param message error message
+	 * @return error message with error prefix
+	 */
+	public String formatError(final String message) {
+		return release(acquireBuilder().append(errorPrefix).append(message));
+	}
+	
+	static StringBuilder acquireBuilder() {
+		final StringBuilder sb = builder.get();
+		sb.setLength(0);
+		return sb;
+	}
+	
+	static String release(final StringBuilder sb) {
+		final String result = sb.toString();
+		if(sb.capacity() > MAX_BUILDER_CAPACITY) {
+			builder.remove();
+		}
+		return result;
+	}
+}
@@ -0,0 +1,111 @@
+package me.ragan262.commandmanager.format;
+
+import me.ragan262.commandmanager.lang.CommandLang;
+import me.ragan262.commandmanager.lang.QueueLang;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * <p>{@link CommandLang} messages formatted as errors by a {@link CommandFormat}. Messages without 
+ * arguments are formatted once, messages with an argument are split into templates once and
+ * the argument is inserted into a reusable buffer. This assumes language messages don't change
+ * over time. If a language message does not contain its argument exactly once, it is generated
+ * by the language object every time.</p>
+ * 
+ * @author raGan
+ */
+public final class FormattedCommandLang {
+	
+	private final CommandLang lang;
+	private final CommandFormat format;
+	
+	private final String tooManyArgs;
+	private final String notEnoughArgs;
+	private final String playerContext;
+	private final String queueFull;
+	private final String formattedTooManyArgs;
+	private final String formattedNotEnoughArgs;
+	private final String formattedPlayerContext;
+	private final String formattedQueueFull;
+	
+	private final MessageTemplate invalidArg;
+	private final MessageTemplate invalidNumber;
+	private final MessageTemplate unknownArg;
+	private final MessageTemplate usage;
+	private final MessageTemplate permission;
+	
+	public FormattedCommandLang(final CommandLang lang, final CommandFormat format) {
+		Validate.notNull(lang, "Lang can't be null.");
+		Validate.notNull(format, "Format can't be null.");
+		this.lang = lang;
+		this.format = format;
+		
+		tooManyArgs = lang.tooManyArgsMessage();
+		notEnoughArgs = lang.notEnoughArgsMessage();
+		playerContext = lang.playerContextMessage();
+		queueFull = lang instanceof QueueLang ? ((QueueLang) lang).queueFullMessage() : null;
+		formattedTooManyArgs = format.formatError(tooManyArgs);
+		formattedNotEnoughArgs = format.formatError(notEnoughArgs);
+		formattedPlayerContext = format.formatError(playerContext);
+		formattedQueueFull = queueFull == null ? null : format.formatError(queueFull);
+		
+		final String prefix = format.getErrorPrefix();
+		final String marker = MessageTemplate.MARKER;
+		invalidArg = MessageTemplate.create(prefix, lang.invalidArgMessage(marker));
+		invalidNumber = MessageTemplate.create(prefix, lang.invalidNumberMessage(marker));
+		unknownArg = MessageTemplate.create(prefix, lang.unknownArgMessage(marker));
+		usage = MessageTemplate.create(prefix, lang.usageMessage(marker));
+		permission = MessageTemplate.create(prefix, lang.permissionMessage(marker));
+	}
+	
+	public CommandLang getLang() {
+		return lang;
+	}
+	
+	public CommandFormat getFormat() {
+		return format;
+	}
+	
+	/**
+	 * Formats any message as an error. Messages equal to argumentless language messages are not
+	 * formatted again.
+	 * 
+	 * @param message message to format
+	 * @return formatted message
+	 */
+	public String error(final String message) {
+		if(notEnoughArgs.equals(message)) {
+			return formattedNotEnoughArgs;
+		}
+		if(tooManyArgs.equals(message)) {
+			return formattedTooManyArgs;
+		}
+		if(playerContext.equals(message)) {
+			return formattedPlayerContext;
+		}
+		if(queueFull != null && queueFull.equals(message)) {
+			return formattedQueueFull;
+		}
+		return format.formatError(message);
+	}
+	
+	public String invalidArg(final String argument) {
+		return invalidArg == null ? format.formatError(lang.invalidArgMessage(argument)) : invalidArg.apply(argument);
+	}
+	
+	public String invalidNumber(final String argument) {
+		return invalidNumber == null ? format.formatError(lang.invalidNumberMessage(argument)) : invalidNumber.apply(argument);
+	}
+	
+	public String unknownArg(final String argument) {
+		return unknownArg == null ? format.formatError(lang.unknownArgMessage(argument)) : unknownArg.apply(argument);
+	}
+	
+	public String usage(final String usage) {
+		return this.usage == null ? format.formatError(lang.usageMessage(usage)) : this.usage.apply(usage);
+	}
+	
+	public String permission(final String permission) {
+		return this.permission == null ? format.formatError(lang.permissionMessage(permission)) : this.permission.apply(permission);
+	}
+}
@@ -0,0 +1,40 @@
+package me.ragan262.commandmanager.format;
+
+/**
+ * Message with a single argument split into the text before and after the argument. Created by
+ * calling the message method with a marker argument once.
+ * 
+ * @author raGan
+ */
+final class MessageTemplate {
+	
+	static final String MARKER = "\u0000";
+	
+	private final String prefix;
+	private final String suffix;
+	
+	private MessageTemplate(final String prefix, final String suffix) {
+		this.prefix = prefix;
+		this.suffix = suffix;
+	}
+	
+	/**
+	 * @param errorPrefix prefix prepended to the message
+	 * @param message message generated with {@link #MARKER} as its argument
+	 * @return template, or null if the message doesn't contain the marker exactly once
+	 */
+	static MessageTemplate create(final String errorPrefix, final String message) {
+		if(message == null) {
+			return null;
+		}
+		final int index = message.indexOf(MARKER);
+		if(index < 0 || message.indexOf(MARKER, index + 1) >= 0) {
+			return null;
+		}
+		return new MessageTemplate(errorPrefix + message.substring(0, index), message.substring(index + 1));
+	}
+	
+	String apply(final String argument) {
+		return CommandFormat.release(CommandFormat.acquireBuilder().append(prefix).append(argument).append(suffix));
+	}
+}
@@ -0,0 +1,271 @@
+package me.ragan262.commandmanager.forward;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import me.ragan262.commandmanager.CommandInterceptor;
+import me.ragan262.commandmanager.CommandManager;
+import me.ragan262.commandmanager.CommandNode;
+import me.ragan262.commandmanager.annotations.Command;
+import me.ragan262.commandmanager.context.CommandContext;
+import org.apache.commons.lang.Validate;
+import org.bukkit.command.CommandSender;
+
+/**
+ * <p>Forwards commands to other servers of the network. Commands with {@link Command#forward()
+ * forward scope} that were executed successfully are collected and published in batches through
+ * a {@link ForwardTransport}, either when {@link #flush()} is called (usually once per tick) or
+ * when the batch is full. Each command is sent as its path, context arguments and sender name,
+ * see {@link ForwardCodec} for the frame format.</p>
+ * 
+ * <p>Servers receiving the frame execute commands whose scope is "*" or one of their groups 
+ * through {@link CommandManager#handleResolved(CommandNode, String[], CommandSender) handleResolved}
+ * as {@link ForwardedSender}, without resolving labels again. Only commands declaring the same 
+ * forward scope locally are executed, others are rejected. Every command has a unique id, 
+ * commands received more than once are executed only once. Forwarded commands are never forwarded
+ * again.</p>
+ * 
+ * @author raGan
+ */
+public final class ForwardBus implements CommandInterceptor, ForwardReceiver {
+	
+	private static final int SEEN_IDS = 4096;
+	
+	private final CommandManager manager;
+	private final ForwardTransport transport;
+	private final Executor executor;
+	private final Logger logger;
+	private final String serverId;
+	private final Set<String> groups;
+	
+	private final Queue<ForwardedCommand> pending = new ConcurrentLinkedQueue<ForwardedCommand>();
+	private final AtomicInteger pendingCount = new AtomicInteger();
+	private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000L);
+	private final AtomicLong duplicates = new AtomicLong();
+	private final Map<String, Boolean> seen = new LinkedHashMap<String, Boolean>(16, 0.75f, false) {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+			return size() > SEEN_IDS;
+		}
+	};
+	
+	private volatile int maxBatchSize = 256;
+	private volatile boolean running = false;
+	private boolean registered = false;
+	
+	/**
+	 * Creates new forward bus. Nothing is forwarded or received until {@link #start()} is called.
+	 * 
+	 * @param manager command manager to forward commands of and execute received commands with
+	 * @param transport transport to publish and receive frames
+	 * @param executor executor of received commands, usually one that runs tasks in the main thread
+	 * @param logger logger to log errors and replies of received commands
+	 * @param serverId id of this server, unique in the network
+	 * @param groups groups this server belongs to
+	 */
+	public ForwardBus(final CommandManager manager, final ForwardTransport transport, final Executor executor, final Logger logger, final String serverId, final Set<String> groups) {
+		Validate.notNull(manager, "Manager can't be null.");
+		Validate.notNull(transport, "Transport can't be null.");
+		Validate.notNull(executor, "Executor can't be null.");
+		Validate.notNull(logger, "Logger can't be null.");
+		Validate.notNull(serverId, "Server id can't be null.");
+		Validate.notNull(groups, "Groups can't be null.");
+		this.manager = manager;
+		this.transport = transport;
+		this.executor = executor;
+		this.logger = logger;
+		this.serverId = serverId;
+		this.groups = Collections.unmodifiableSet(new HashSet<String>(groups));
+	}
+	
+	/**
+	 * @param size number of collected commands after which they are published without waiting for
+	 * {@link #flush()}
+	 */
+	public void setMaxBatchSize(final int size) {
+		Validate.isTrue(size > 0 && size <= 0xFFFF, "Size must be between 1 and 65535.");
+		maxBatchSize = size;
+	}
+	
+	/**
+	 * Opens the transport and starts collecting commands of the command manager.
+	 * 
+	 * @throws IOException if the transport can't be opened
+	 */
+	public synchronized void start() throws IOException {
+		if(running) {
+			return;
+		}
+		transport.open(this);
+		if(!registered) {
+			manager.addInterceptor(this);
+			registered = true;
+		}
+		running = true;
+	}
+	
+	/**
+	 * Publishes collected commands and closes the transport.
+	 */
+	public synchronized void close() {
+		if(!running) {
+			return;
+		}
+		flush();
+		running = false;
+		transport.close();
+	}
+	
+	/**
+	 * Publishes all collected commands.
+	 */
+	public void flush() {
+		final List<ForwardedCommand> batch = new ArrayList<ForwardedCommand>();
+		ForwardedCommand command;
+		while((command = pending.poll()) != null) {
+			pendingCount.decrementAndGet();
+			batch.add(command);
+			if(batch.size() == 0xFFFF) {
+				publish(batch);
+				batch.clear();
+			}
+		}
+		if(!batch.isEmpty()) {
+			publish(batch);
+		}
+	}
+	
+	/**
+	 * @return number of received commands discarded as duplicates
+	 */
+	public long getDuplicateCount() {
+		return duplicates.get();
+	}
+	
+	private void publish(final List<ForwardedCommand> batch) {
+		try {
+			transport.publish(ForwardCodec.encode(serverId, batch));
+		}
+		catch (final IOException e) {
+			logger.log(Level.WARNING, "Failed to forward " + batch.size() + " commands.", e);
+		}
+	}
+	
+	@Override
+	public boolean preCommand(final CommandNode node, final CommandContext context, final CommandSender sender) {
+		return true;
+	}
+	
+	@Override
+	public void postCommand(final CommandNode node, final CommandContext context, final CommandSender sender, final Throwable error) {
+		if(!running || error != null || node.getForward().isEmpty() || sender instanceof ForwardedSender) {
+			return;
+		}
+		final List<String> path = new ArrayList<String>();
+		for(CommandNode n = node; n != null; n = n.getParent()) {
+			path.add(0, n.getLabels()[0]);
+		}
+		final String[] args = context.getArgs();
+		final Set<Character> flags = context.getFlags();
+		final String[] allArgs;
+		if(flags.isEmpty()) {
+			allArgs = args;
+		}
+		else {
+			allArgs = new String[args.length + 1];
+			System.arraycopy(args, 0, allArgs, 0, args.length);
+			final StringBuilder sb = new StringBuilder(flags.size() + 1).append('-');
+			for(final Character flag : flags) {
+				sb.append(flag.charValue());
+			}
+			allArgs[args.length] = sb.toString();
+		}
+		pending.add(new ForwardedCommand(sequence.incrementAndGet(), node.getForward(), sender.getName(),
+				path.toArray(new String[path.size()]), allArgs));
+		if(pendingCount.incrementAndGet() >= maxBatchSize) {
+			flush();
+		}
+	}
+	
+	@Override
+	public void receive(final byte[] frame) {
+		if(!running) {
+			return;
+		}
+		final List<ForwardedCommand> commands = new ArrayList<ForwardedCommand>();
+		final String origin;
+		try {
+			origin = ForwardCodec.decode(frame, commands);
+		}
+		catch (final IOException e) {
+			logger.log(Level.WARNING, "Received invalid forward frame.", e);
+			return;
+		}
+		if(origin.equals(serverId)) {
+			return;
+		}
+		final List<ForwardedCommand> accepted = new ArrayList<ForwardedCommand>(commands.size());
+		synchronized(seen) {
+			for(final ForwardedCommand command : commands) {
+				if(!command.scope.equals("*") && !groups.contains(command.scope)) {
+					continue;
+				}
+				if(seen.put(origin + '#' + command.sequence, Boolean.TRUE) != null) {
+					duplicates.incrementAndGet();
+					continue;
+				}
+				accepted.add(command);
+			}
+		}
+		if(accepted.isEmpty()) {
+			return;
+		}
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				for(final ForwardedCommand command : accepted) {
+					final CommandNode node;
+					try {
+						node = manager.getNode(command.path);
+					}
+					catch (final IllegalArgumentException e) {
+						logger.warning("Unknown command forwarded from " + origin + ": " + e.getMessage());
+						continue;
+					}
+					if(node.getForward().isEmpty() || !node.getForward().equals(command.scope)) {
+						logger.warning("Rejected command forwarded from " + origin + ": '" + join(command.path) 
+								+ "' can't be forwarded in scope '" + command.scope + "'.");
+						continue;
+					}
+					manager.handleResolved(node, command.args, new ForwardedSender(command.sender, origin, node.getPermission(), logger));
+				}
+			}
+		});
+	}
+	
+	private static String join(final String[] path) {
+		final StringBuilder sb = new StringBuilder();
+		for(final String label : path) {
+			if(sb.length() > 0) {
+				sb.append(' ');
+			}
+			sb.append(label);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,76 @@
+package me.ragan262.commandmanager.forward;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * <p>Binary format of forward frames. Strings are written in modified UTF-8 as written by
+ * {@link DataOutputStream#writeUTF(String)}.</p>
+ * 
+ * <p>Frame: format version (byte), id of the origin server, number of commands (short), and for
+ * every command sequence number (long), scope, sender name, number of labels in the path (byte),
+ * the labels, number of context arguments (short) and the arguments.</p>
+ * 
+ * @author raGan
+ */
+final class ForwardCodec {
+	
+	static final int FORMAT_VERSION = 1;
+	
+	private ForwardCodec() {
+	}
+	
+	static byte[] encode(final String origin, final List<ForwardedCommand> commands) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + commands.size() * 48);
+		final DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(FORMAT_VERSION);
+		out.writeUTF(origin);
+		out.writeShort(commands.size());
+		for(final ForwardedCommand command : commands) {
+			out.writeLong(command.sequence);
+			out.writeUTF(command.scope);
+			out.writeUTF(command.sender);
+			out.writeByte(command.path.length);
+			for(final String label : command.path) {
+				out.writeUTF(label);
+			}
+			out.writeShort(command.args.length);
+			for(final String arg : command.args) {
+				out.writeUTF(arg);
+			}
+		}
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * @return origin of the frame
+	 */
+	static String decode(final byte[] frame, final List<ForwardedCommand> commands) throws IOException {
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+		final int version = in.readUnsignedByte();
+		if(version != FORMAT_VERSION) {
+			throw new IOException("Unsupported frame format: " + version);
+		}
+		final String origin = in.readUTF();
+		final int count = in.readUnsignedShort();
+		for(int i = 0; i < count; i++) {
+			final long sequence = in.readLong();
+			final String scope = in.readUTF();
+			final String sender = in.readUTF();
+			final String[] path = new String[in.readUnsignedByte()];
+			for(int j = 0; j < path.length; j++) {
+				path[j] = in.readUTF();
+			}
+			final String[] args = new String[in.readUnsignedShort()];
+			for(int j = 0; j < args.length; j++) {
+				args[j] = in.readUTF();
+			}
+			commands.add(new ForwardedCommand(sequence, scope, sender, path, args));
+		}
+		return origin;
+	}
+}
@@ -0,0 +1,14 @@
+package me.ragan262.commandmanager.forward;
+
+/**
+ * Receives frames delivered by a {@link ForwardTransport}.
+ * 
+ * @author raGan
+ */
+public interface ForwardReceiver {
+	
+	/**
+	 * @param frame received frame
+	 */
+	public void receive(byte[] frame);
+}
@@ -0,0 +1,33 @@
+package me.ragan262.commandmanager.forward;
+
+import java.io.IOException;
+
+/**
+ * Delivers frames published by a {@link ForwardBus} to buses of other servers. Implementations
+ * may deliver a frame more than once, duplicates are discarded by receiving buses.
+ * 
+ * @author raGan
+ */
+public interface ForwardTransport {
+	
+	/**
+	 * Starts delivering frames published by other servers to the receiver.
+	 * 
+	 * @param receiver receiver of frames, may be called from any thread
+	 * @throws IOException if the transport can't be opened
+	 */
+	public void open(ForwardReceiver receiver) throws IOException;
+	
+	/**
+	 * Publishes the frame to all other servers.
+	 * 
+	 * @param frame frame to publish, must not be modified afterwards
+	 * @throws IOException if publishing fails
+	 */
+	public void publish(byte[] frame) throws IOException;
+	
+	/**
+	 * Stops delivering frames and releases all resources.
+	 */
+	public void close();
+}
@@ -0,0 +1,23 @@
+package me.ragan262.commandmanager.forward;
+
+/**
+ * Single command in a forward frame.
+ * 
+ * @author raGan
+ */
+final class ForwardedCommand {
+	
+	final long sequence;
+	final String scope;
+	final String sender;
+	final String[] path;
+	final String[] args;
+	
+	ForwardedCommand(final long sequence, final String scope, final String sender, final String[] path, final String[] args) {
+		this.sequence = sequence;
+		this.scope = scope;
+		this.sender = sender;
+		this.path = path;
+		this.args = args;
+	}
+}
@@ -0,0 +1,141 @@
+package me.ragan262.commandmanager.forward;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.CommandSender;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * <p>Sender of commands forwarded from another server. Permissions of the original sender were
+ * checked on the origin server, so forwarded senders only have the permission of the forwarded 
+ * command (any of its alternatives) and permissions beneath it, e.g. {@code "eco.give.others"} for
+ * a command with permission {@code "eco.give"}. Commands without permission grant no permissions.
+ * Forwarded senders are never players, so player-only commands can't be forwarded.</p>
+ * 
+ * <p>Messages sent to forwarded senders are logged.</p>
+ * 
+ * @author raGan
+ */
+public final class ForwardedSender implements CommandSender {
+	
+	private final String name;
+	private final String origin;
+	private final String[] permissions;
+	private final Logger logger;
+	
+	ForwardedSender(final String name, final String origin, final String permission, final Logger logger) {
+		this.name = name;
+		this.origin = origin;
+		this.permissions = permission.isEmpty() ? new String[0] : permission.split("\\|\\|");
+		this.logger = logger;
+	}
+	
+	/**
+	 * @return id of the server the command was forwarded from
+	 */
+	public String getOrigin() {
+		return origin;
+	}
+	
+	@Override
+	public void sendMessage(final String message) {
+		logger.info("[" + origin + "/" + name + "] " + message);
+	}
+	
+	@Override
+	public void sendMessage(final String[] messages) {
+		for(final String message : messages) {
+			sendMessage(message);
+		}
+	}
+	
+	/**
+	 * @return name of the original sender
+	 */
+	@Override
+	public String getName() {
+		return name;
+	}
+	
+	@Override
+	public Server getServer() {
+		return Bukkit.getServer();
+	}
+	
+	@Override
+	public boolean hasPermission(final String perm) {
+		for(final String granted : permissions) {
+			if(perm.regionMatches(true, 0, granted, 0, granted.length())
+					&& (perm.length() == granted.length() || perm.charAt(granted.length()) == '.')) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public boolean hasPermission(final Permission perm) {
+		return hasPermission(perm.getName());
+	}
+	
+	@Override
+	public boolean isPermissionSet(final String perm) {
+		return hasPermission(perm);
+	}
+	
+	@Override
+	public boolean isPermissionSet(final Permission perm) {
+		return hasPermission(perm.getName());
+	}
+	
+	@Override
+	public Set<PermissionAttachmentInfo> getEffectivePermissions() {
+		return Collections.emptySet();
+	}
+	
+	@Override
+	public void recalculatePermissions() {
+	}
+	
+	@Override
+	public PermissionAttachment addAttachment(final Plugin plugin, final String name, final boolean value) {
+		throw new UnsupportedOperationException("Forwarded senders have fixed permissions.");
+	}
+	
+	@Override
+	public PermissionAttachment addAttachment(final Plugin plugin) {
+		throw new UnsupportedOperationException("Forwarded senders have fixed permissions.");
+	}
+	
+	@Override
+	public PermissionAttachment addAttachment(final Plugin plugin, final String name, final boolean value, final int ticks) {
+		throw new UnsupportedOperationException("Forwarded senders have fixed permissions.");
+	}
+	
+	@Override
+	public PermissionAttachment addAttachment(final Plugin plugin, final int ticks) {
+		throw new UnsupportedOperationException("Forwarded senders have fixed permissions.");
+	}
+	
+	@Override
+	public void removeAttachment(final PermissionAttachment attachment) {
+		throw new UnsupportedOperationException("Forwarded senders have fixed permissions.");
+	}
+	
+	@Override
+	public boolean isOp() {
+		return false;
+	}
+	
+	@Override
+	public void setOp(final boolean value) {
+		throw new UnsupportedOperationException("Forwarded senders can't be operators.");
+	}
+}
@@ -0,0 +1,68 @@
+package me.ragan262.commandmanager.forward;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Transport connecting buses in the same process, meant for testing. Frames are delivered to all
+ * connected transports through the delivery executor.
+ * 
+ * @author raGan
+ */
+public final class LoopbackTransport implements ForwardTransport {
+	
+	private final Executor delivery;
+	private final List<LoopbackTransport> peers = new CopyOnWriteArrayList<LoopbackTransport>();
+	private volatile ForwardReceiver receiver = null;
+	
+	/**
+	 * @param delivery executor delivering frames to other transports
+	 */
+	public LoopbackTransport(final Executor delivery) {
+		Validate.notNull(delivery, "Executor can't be null.");
+		this.delivery = delivery;
+	}
+	
+	/**
+	 * Connects this transport with another one in both directions.
+	 * 
+	 * @param other transport to connect to
+	 */
+	public void connect(final LoopbackTransport other) {
+		Validate.isTrue(other != this, "Transport can't be connected to itself.");
+		peers.add(other);
+		other.peers.add(this);
+	}
+	
+	@Override
+	public void open(final ForwardReceiver receiver) {
+		this.receiver = receiver;
+	}
+	
+	@Override
+	public void publish(final byte[] frame) {
+		for(final LoopbackTransport peer : peers) {
+			delivery.execute(new Runnable() {
+				@Override
+				public void run() {
+					final ForwardReceiver target = peer.receiver;
+					if(target != null) {
+						target.receive(frame);
+					}
+				}
+			});
+		}
+	}
+	
+	@Override
+	public void close() {
+		receiver = null;
+		for(final LoopbackTransport peer : peers) {
+			peer.peers.remove(this);
+		}
+		peers.clear();
+	}
+}
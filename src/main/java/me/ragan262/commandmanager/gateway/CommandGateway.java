@@ -0,0 +1,417 @@
+package me.ragan262.commandmanager.gateway;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.SecureRandom;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import me.ragan262.commandmanager.CommandManager;
+import org.apache.commons.lang.Validate;
+
+/**
+ * <p>Accepts batches of commands from external tools over a loopback TCP socket and executes them
+ * through {@link CommandManager#handleCommandNow(String[], org.bukkit.command.CommandSender) handleCommandNow} as
+ * {@link GatewaySender gateway sender} with a fixed set of permissions. Messages sent to the sender
+ * are sent back as the reply of each command. See {@link GatewayProtocol} for the frame format,
+ * {@link GatewayClient} is a simple client.</p>
+ * 
+ * <p>Any local process can connect to the socket, so clients have to start with a handshake 
+ * containing a shared secret. Connections sending a wrong secret or not sending it in time are
+ * closed. The secret should be stored where only trusted users can read it, for example in a file
+ * readable only by the server user, see {@link #generateSecret()}.</p>
+ * 
+ * <p>Sockets are handled by a single thread using non-blocking I/O. Every received batch is passed
+ * to the executor as a single task, which usually schedules it to the main thread. Clients may send
+ * more batches without waiting for responses, responses are sent in the order batches are executed.
+ * A connection stops being read when it has too many batches waiting for execution or for their
+ * responses to be written, so slow execution or a slow client only fills socket buffers.</p>
+ * 
+ * @author raGan
+ */
+public final class CommandGateway {
+	
+	private final CommandManager manager;
+	private final Executor executor;
+	private final Logger logger;
+	private final String senderName;
+	private final Set<String> permissions;
+	private final byte[] secret;
+	private final Queue<GatewayConnection> ready = new ConcurrentLinkedQueue<GatewayConnection>();
+	/** Connections waiting for the handshake, used only by the gateway thread. */
+	private final Queue<GatewayConnection> handshaking = new ArrayDeque<GatewayConnection>();
+	
+	private volatile int maxFrameSize = 1 << 16;
+	private volatile int maxPendingBatches = 8;
+	private volatile int maxConnections = 16;
+	private volatile long handshakeTimeout = 5000;
+	private int connections = 0;
+	
+	private volatile Selector selector = null;
+	private ServerSocketChannel server = null;
+	private Thread thread = null;
+	private volatile boolean running = false;
+	
+	/**
+	 * Creates new gateway. No socket is opened until {@link #start(int)} is called.
+	 * 
+	 * @param manager command manager to execute commands
+	 * @param executor executor of received batches, commands are executed in its thread
+	 * @param logger logger to log I/O errors
+	 * @param senderName name of the gateway sender
+	 * @param permissions permissions of the gateway sender
+	 * @param secret secret clients have to send before sending commands, at least 16 characters long
+	 */
+	public CommandGateway(final CommandManager manager, final Executor executor, final Logger logger, final String senderName, final Set<String> permissions, final String secret) {
+		Validate.notNull(manager, "Manager can't be null.");
+		Validate.notNull(executor, "Executor can't be null.");
+		Validate.notNull(logger, "Logger can't be null.");
+		Validate.notNull(senderName, "Sender name can't be null.");
+		Validate.notNull(permissions, "Permissions can't be null.");
+		Validate.notNull(secret, "Secret can't be null.");
+		Validate.isTrue(secret.length() >= 16, "Secret must be at least 16 characters long.");
+		this.manager = manager;
+		this.executor = executor;
+		this.logger = logger;
+		this.senderName = senderName;
+		this.permissions = Collections.unmodifiableSet(new HashSet<String>(permissions));
+		this.secret = GatewayProtocol.secretBytes(secret);
+	}
+	
+	/**
+	 * @return random secret of 32 hexadecimal characters
+	 */
+	public static String generateSecret() {
+		final byte[] bytes = new byte[16];
+		new SecureRandom().nextBytes(bytes);
+		final StringBuilder sb = new StringBuilder(32);
+		for(final byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * @param size maximal size of a request frame in bytes, larger frames close the connection
+	 */
+	public void setMaxFrameSize(final int size) {
+		Validate.isTrue(size > 0, "Size must be positive.");
+		maxFrameSize = size;
+	}
+	
+	/**
+	 * @param count maximal number of batches of a single connection waiting for execution or
+	 * for their responses to be written
+	 */
+	public void setMaxPendingBatches(final int count) {
+		Validate.isTrue(count > 0, "Count must be positive.");
+		maxPendingBatches = count;
+	}
+	
+	/**
+	 * @param count maximal number of open connections, further connections are closed right away
+	 */
+	public void setMaxConnections(final int count) {
+		Validate.isTrue(count > 0, "Count must be positive.");
+		maxConnections = count;
+	}
+	
+	/**
+	 * @param millis time in milliseconds a new connection has to complete the handshake in,
+	 * otherwise it is closed
+	 */
+	public void setHandshakeTimeout(final long millis) {
+		Validate.isTrue(millis > 0, "Timeout must be positive.");
+		handshakeTimeout = millis;
+	}
+	
+	/**
+	 * Binds the gateway to a loopback address and starts the gateway thread.
+	 * 
+	 * @param port port to listen on, 0 for any free port
+	 * @throws IOException if the socket can't be opened
+	 */
+	public synchronized void start(final int port) throws IOException {
+		if(running) {
+			return;
+		}
+		selector = Selector.open();
+		try {
+			server = ServerSocketChannel.open();
+			server.configureBlocking(false);
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+			server.register(selector, SelectionKey.OP_ACCEPT);
+		}
+		catch (final IOException e) {
+			if(server != null) {
+				server.close();
+			}
+			selector.close();
+			throw e;
+		}
+		running = true;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				selectLoop();
+			}
+		}, "CommandManager gateway");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * @return port the gateway listens on, -1 if it is not running
+	 */
+	public synchronized int getPort() {
+		return running ? server.socket().getLocalPort() : -1;
+	}
+	
+	/**
+	 * Stops the gateway thread and closes all connections. Batches being executed are not
+	 * interrupted, but their responses are discarded.
+	 */
+	public void close() {
+		final Thread stopped;
+		synchronized(this) {
+			if(!running) {
+				return;
+			}
+			running = false;
+			stopped = thread;
+			thread = null;
+		}
+		selector.wakeup();
+		try {
+			stopped.join();
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private void selectLoop() {
+		try {
+			while(running) {
+				selector.select(expireHandshakes());
+				GatewayConnection connection;
+				while((connection = ready.poll()) != null) {
+					if(connection.key.isValid()) {
+						service(connection, false);
+					}
+				}
+				final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while(keys.hasNext()) {
+					final SelectionKey key = keys.next();
+					keys.remove();
+					if(!key.isValid()) {
+						continue;
+					}
+					if(key.isAcceptable()) {
+						accept();
+					}
+					else {
+						service((GatewayConnection) key.attachment(), key.isReadable());
+					}
+				}
+			}
+		}
+		catch (final Throwable e) {
+			logger.log(Level.SEVERE, "Command gateway failed.", e);
+		}
+		finally {
+			for(final SelectionKey key : selector.keys()) {
+				closeQuietly(key);
+			}
+			try {
+				selector.close();
+			}
+			catch (final IOException ignore) {
+			}
+			ready.clear();
+			handshaking.clear();
+			connections = 0;
+			running = false;
+		}
+	}
+	
+	private void accept() throws IOException {
+		final SocketChannel channel = server.accept();
+		if(channel == null) {
+			return;
+		}
+		if(connections >= maxConnections) {
+			channel.close();
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		final SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+		final GatewayConnection connection = new GatewayConnection(channel, key, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(handshakeTimeout));
+		key.attach(connection);
+		handshaking.add(connection);
+		connections++;
+	}
+	
+	/**
+	 * Closes connections that didn't complete the handshake before their deadline.
+	 * 
+	 * @return milliseconds until the nearest remaining deadline, 0 if there is none
+	 */
+	private long expireHandshakes() {
+		final long now = System.nanoTime();
+		long next = 0;
+		final Iterator<GatewayConnection> iterator = handshaking.iterator();
+		while(iterator.hasNext()) {
+			final GatewayConnection connection = iterator.next();
+			if(connection.authenticated || !connection.key.isValid()) {
+				iterator.remove();
+				continue;
+			}
+			final long remaining = connection.handshakeDeadline - now;
+			if(remaining <= 0) {
+				iterator.remove();
+				logger.fine("Closing gateway connection that didn't finish the handshake in time.");
+				close(connection);
+				continue;
+			}
+			final long millis = TimeUnit.NANOSECONDS.toMillis(remaining) + 1;
+			if(next == 0 || millis < next) {
+				next = millis;
+			}
+		}
+		return next;
+	}
+	
+	private void service(final GatewayConnection connection, final boolean readable) {
+		try {
+			if(readable) {
+				read(connection);
+			}
+			connection.writeResponses();
+			if(connection.isFinished()) {
+				close(connection);
+				return;
+			}
+			connection.updateInterest(maxPendingBatches);
+		}
+		catch (final IOException e) {
+			logger.log(Level.FINE, "Closing gateway connection.", e);
+			close(connection);
+		}
+	}
+	
+	private void read(final GatewayConnection connection) throws IOException {
+		if(!connection.authenticated) {
+			final ByteBuffer handshake = connection.readFrame(maxFrameSize);
+			if(handshake == null) {
+				return;
+			}
+			if(!GatewayProtocol.checkHandshake(handshake, secret)) {
+				throw new IOException("Gateway client sent a wrong secret.");
+			}
+			connection.authenticated = true;
+			connection.pending.incrementAndGet();
+			connection.responses.add(GatewayProtocol.encodeAccepted());
+		}
+		final int maxPending = maxPendingBatches;
+		while(connection.pending.get() < maxPending) {
+			final ByteBuffer frame = connection.readFrame(maxFrameSize);
+			if(frame == null) {
+				return;
+			}
+			final List<String[]> commands = new ArrayList<String[]>();
+			final int id = GatewayProtocol.decodeRequest(frame, commands);
+			connection.pending.incrementAndGet();
+			try {
+				executor.execute(new Batch(connection, id, commands));
+			}
+			catch (final RejectedExecutionException e) {
+				throw new IOException("Batch rejected by the executor.", e);
+			}
+		}
+	}
+	
+	private void close(final GatewayConnection connection) {
+		if(connection.key.isValid()) {
+			connections--;
+		}
+		closeQuietly(connection.key);
+	}
+	
+	private static void closeQuietly(final SelectionKey key) {
+		key.cancel();
+		try {
+			key.channel().close();
+		}
+		catch (final IOException ignore) {
+		}
+	}
+	
+	/**
+	 * Commands received in a single frame, executed together.
+	 */
+	private final class Batch implements Runnable {
+		
+		private final GatewayConnection connection;
+		private final int id;
+		private final List<String[]> commands;
+		
+		Batch(final GatewayConnection connection, final int id, final List<String[]> commands) {
+			this.connection = connection;
+			this.id = id;
+			this.commands = commands;
+		}
+		
+		@Override
+		public void run() {
+			final byte[] statuses = new byte[commands.size()];
+			final List<List<String>> replies = new ArrayList<List<String>>(statuses.length);
+			for(int i = 0; i < statuses.length; i++) {
+				final GatewaySender sender = new GatewaySender(senderName, permissions);
+				final boolean success = manager.handleCommandNow(commands.get(i), sender);
+				statuses[i] = success ? GatewayProtocol.SUCCESS : GatewayProtocol.FAILURE;
+				replies.add(sender.getReply());
+			}
+			ByteBuffer response;
+			try {
+				response = GatewayProtocol.encodeResponse(id, statuses, replies);
+			}
+			catch (final IOException e) {
+				logger.log(Level.WARNING, "Failed to encode gateway response.", e);
+				final List<List<String>> empty = new ArrayList<List<String>>(statuses.length);
+				for(int i = 0; i < statuses.length; i++) {
+					statuses[i] = GatewayProtocol.FAILURE;
+					empty.add(Collections.<String>emptyList());
+				}
+				try {
+					response = GatewayProtocol.encodeResponse(id, statuses, empty);
+				}
+				catch (final IOException impossible) {
+					throw new IllegalStateException(impossible);
+				}
+			}
+			connection.responses.add(response);
+			ready.add(connection);
+			selector.wakeup();
+		}
+	}
+}
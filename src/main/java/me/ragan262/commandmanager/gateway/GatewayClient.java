@@ -0,0 +1,96 @@
+package me.ragan262.commandmanager.gateway;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Simple blocking client of {@link CommandGateway}. Batches may be sent without waiting for
+ * responses of previous batches, responses are then received in order of execution.
+ * 
+ * @author raGan
+ */
+public final class GatewayClient {
+	
+	private final Socket socket;
+	private final DataInputStream in;
+	private final OutputStream out;
+	private int nextId = 0;
+	
+	/**
+	 * Connects to a gateway listening on the loopback address and authenticates with the secret.
+	 * 
+	 * @param port port of the gateway
+	 * @param secret secret of the gateway
+	 * @throws IOException if the connection fails or the gateway rejects the secret
+	 */
+	public GatewayClient(final int port, final String secret) throws IOException {
+		socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		try {
+			socket.setTcpNoDelay(true);
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out = new BufferedOutputStream(socket.getOutputStream());
+			final ByteBuffer handshake = GatewayProtocol.encodeHandshake(GatewayProtocol.secretBytes(secret));
+			out.write(handshake.array(), handshake.arrayOffset(), handshake.remaining());
+			out.flush();
+			if(in.readInt() != 1 || in.readByte() != GatewayProtocol.SUCCESS) {
+				throw new IOException("Unexpected handshake response.");
+			}
+		}
+		catch (final EOFException e) {
+			close();
+			throw new IOException("Gateway rejected the secret.", e);
+		}
+		catch (final IOException e) {
+			close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Sends a batch of commands.
+	 * 
+	 * @param commands arguments of the commands
+	 * @return id of the request, same as {@link GatewayResponse#getRequestId()} of its response
+	 * @throws IOException if sending fails
+	 */
+	public synchronized int send(final List<String[]> commands) throws IOException {
+		final int id = nextId++;
+		final ByteBuffer frame = GatewayProtocol.encodeRequest(id, commands);
+		out.write(frame.array(), frame.arrayOffset(), frame.remaining());
+		out.flush();
+		return id;
+	}
+	
+	/**
+	 * Waits for the next response.
+	 * 
+	 * @return response of a sent batch
+	 * @throws IOException if receiving fails or the gateway closed the connection
+	 */
+	public GatewayResponse receive() throws IOException {
+		synchronized(in) {
+			final byte[] frame = new byte[in.readInt()];
+			in.readFully(frame);
+			return GatewayProtocol.decodeResponse(ByteBuffer.wrap(frame));
+		}
+	}
+	
+	/**
+	 * Closes the connection.
+	 */
+	public void close() {
+		try {
+			socket.close();
+		}
+		catch (final IOException ignore) {
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package me.ragan262.commandmanager.gateway;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * State of a single client connection. Reading and writing happen in the gateway thread, responses
+ * are added by the thread executing commands.
+ * 
+ * @author raGan
+ */
+final class GatewayConnection {
+	
+	final SocketChannel channel;
+	final SelectionKey key;
+	final Queue<ByteBuffer> responses = new ConcurrentLinkedQueue<ByteBuffer>();
+	/** Batches received but not written back yet. */
+	final AtomicInteger pending = new AtomicInteger();
+	
+	private final ByteBuffer header = ByteBuffer.allocate(GatewayProtocol.HEADER_SIZE);
+	private ByteBuffer frame = null;
+	boolean inputClosed = false;
+	/** True after the client sent the correct secret. */
+	boolean authenticated = false;
+	/** {@link System#nanoTime()} by which the handshake has to be completed. */
+	final long handshakeDeadline;
+	
+	GatewayConnection(final SocketChannel channel, final SelectionKey key, final long handshakeDeadline) {
+		this.channel = channel;
+		this.key = key;
+		this.handshakeDeadline = handshakeDeadline;
+	}
+	
+	/**
+	 * Reads from the channel until a frame is complete or no more data is available.
+	 * 
+	 * @param maxFrameSize maximal allowed frame size
+	 * @return complete frame, or null if it is not complete yet
+	 * @throws IOException if reading fails or the frame is too large
+	 */
+	ByteBuffer readFrame(final int maxFrameSize) throws IOException {
+		if(frame == null) {
+			if(channel.read(header) < 0) {
+				inputClosed = true;
+				return null;
+			}
+			if(header.hasRemaining()) {
+				return null;
+			}
+			header.flip();
+			final int length = header.getInt();
+			header.clear();
+			if(length < 6 || length > maxFrameSize) {
+				throw new IOException("Invalid frame length: " + length);
+			}
+			frame = ByteBuffer.allocate(length);
+		}
+		if(channel.read(frame) < 0) {
+			inputClosed = true;
+			return null;
+		}
+		if(frame.hasRemaining()) {
+			return null;
+		}
+		final ByteBuffer result = frame;
+		frame = null;
+		result.flip();
+		return result;
+	}
+	
+	/**
+	 * Writes queued responses until all are written or the socket buffer is full.
+	 * 
+	 * @throws IOException if writing fails
+	 */
+	void writeResponses() throws IOException {
+		ByteBuffer buffer;
+		while((buffer = responses.peek()) != null) {
+			channel.write(buffer);
+			if(buffer.hasRemaining()) {
+				return;
+			}
+			responses.poll();
+			pending.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * Updates interest set. Reading stops while the connection has too many pending batches.
+	 * 
+	 * @param maxPending maximal number of pending batches
+	 */
+	void updateInterest(final int maxPending) {
+		int ops = 0;
+		if(!inputClosed && pending.get() < maxPending) {
+			ops |= SelectionKey.OP_READ;
+		}
+		if(!responses.isEmpty()) {
+			ops |= SelectionKey.OP_WRITE;
+		}
+		key.interestOps(ops);
+	}
+	
+	/**
+	 * @return true if the client closed its side and all responses were written
+	 */
+	boolean isFinished() {
+		return inputClosed && pending.get() == 0;
+	}
+}
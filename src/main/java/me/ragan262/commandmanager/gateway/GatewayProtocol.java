@@ -0,0 +1,155 @@
+package me.ragan262.commandmanager.gateway;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Frames exchanged by {@link CommandGateway} and {@link GatewayClient}. Every frame is prefixed
+ * by its length (int, not counting the prefix). Strings are written in modified UTF-8 as written by
+ * {@link DataOutputStream#writeUTF(String)}.</p>
+ * 
+ * <p>Handshake: the first frame sent by the client contains only the shared secret in UTF-8. The
+ * gateway answers with a single byte frame (0) if the secret is correct, otherwise it closes the
+ * connection.</p>
+ * 
+ * <p>Request frame: request id (int), number of commands (short), and for every command number of
+ * arguments (short) and the arguments.</p>
+ * 
+ * <p>Response frame: request id (int), number of results (short), and for every result status
+ * (byte: 0 success, 1 failure) number of reply lines (short) and the lines.</p>
+ * 
+ * @author raGan
+ */
+final class GatewayProtocol {
+	
+	static final int HEADER_SIZE = 4;
+	static final byte SUCCESS = 0;
+	static final byte FAILURE = 1;
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	private GatewayProtocol() {
+	}
+	
+	static byte[] secretBytes(final String secret) {
+		return secret.getBytes(UTF_8);
+	}
+	
+	static ByteBuffer encodeHandshake(final byte[] secret) {
+		final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + secret.length);
+		buffer.putInt(secret.length).put(secret);
+		buffer.flip();
+		return buffer;
+	}
+	
+	/**
+	 * Compares the secret in constant time.
+	 */
+	static boolean checkHandshake(final ByteBuffer frame, final byte[] secret) {
+		final byte[] received = new byte[frame.remaining()];
+		frame.get(received);
+		return MessageDigest.isEqual(received, secret);
+	}
+	
+	static ByteBuffer encodeAccepted() {
+		final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 1);
+		buffer.putInt(1).put(SUCCESS);
+		buffer.flip();
+		return buffer;
+	}
+	
+	static ByteBuffer encodeRequest(final int id, final List<String[]> commands) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		final DataOutputStream out = begin(bytes, id, commands.size());
+		for(final String[] args : commands) {
+			writeStrings(out, args);
+		}
+		return finish(bytes);
+	}
+	
+	static int decodeRequest(final ByteBuffer frame, final List<String[]> commands) throws IOException {
+		final DataInputStream in = open(frame);
+		final int id = in.readInt();
+		final int count = in.readUnsignedShort();
+		for(int i = 0; i < count; i++) {
+			commands.add(readStrings(in));
+		}
+		return id;
+	}
+	
+	static ByteBuffer encodeResponse(final int id, final byte[] statuses, final List<List<String>> replies) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		final DataOutputStream out = begin(bytes, id, replies.size());
+		for(int i = 0; i < statuses.length; i++) {
+			out.writeByte(statuses[i]);
+			final List<String> lines = replies.get(i);
+			writeStrings(out, lines.toArray(new String[lines.size()]));
+		}
+		return finish(bytes);
+	}
+	
+	static GatewayResponse decodeResponse(final ByteBuffer frame) throws IOException {
+		final DataInputStream in = open(frame);
+		final int id = in.readInt();
+		final int count = in.readUnsignedShort();
+		final boolean[] successes = new boolean[count];
+		final List<List<String>> replies = new ArrayList<List<String>>(count);
+		for(int i = 0; i < count; i++) {
+			successes[i] = in.readByte() == SUCCESS;
+			final String[] lines = readStrings(in);
+			final List<String> list = new ArrayList<String>(lines.length);
+			for(final String line : lines) {
+				list.add(line);
+			}
+			replies.add(list);
+		}
+		return new GatewayResponse(id, successes, replies);
+	}
+	
+	private static DataOutputStream begin(final ByteArrayOutputStream bytes, final int id, final int count) throws IOException {
+		if(count > 0xFFFF) {
+			throw new IOException("Too many entries in a frame: " + count);
+		}
+		final DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0); // length placeholder
+		out.writeInt(id);
+		out.writeShort(count);
+		return out;
+	}
+	
+	private static ByteBuffer finish(final ByteArrayOutputStream bytes) {
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+		buffer.putInt(0, buffer.remaining() - HEADER_SIZE);
+		return buffer;
+	}
+	
+	private static DataInputStream open(final ByteBuffer frame) {
+		return new DataInputStream(new ByteArrayInputStream(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining()));
+	}
+	
+	private static void writeStrings(final DataOutputStream out, final String[] strs) throws IOException {
+		if(strs.length > 0xFFFF) {
+			throw new IOException("Too many strings in a frame entry: " + strs.length);
+		}
+		out.writeShort(strs.length);
+		for(final String str : strs) {
+			out.writeUTF(str);
+		}
+	}
+	
+	private static String[] readStrings(final DataInputStream in) throws IOException {
+		final String[] result = new String[in.readUnsignedShort()];
+		for(int i = 0; i < result.length; i++) {
+			result[i] = in.readUTF();
+		}
+		return result;
+	}
+}
@@ -0,0 +1,53 @@
+package me.ragan262.commandmanager.gateway;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Results of a batch of commands sent through {@link GatewayClient}, in the order the commands
+ * were sent.
+ * 
+ * @author raGan
+ */
+public final class GatewayResponse {
+	
+	private final int requestId;
+	private final boolean[] successes;
+	private final List<List<String>> replies;
+	
+	GatewayResponse(final int requestId, final boolean[] successes, final List<List<String>> replies) {
+		this.requestId = requestId;
+		this.successes = successes;
+		this.replies = replies;
+	}
+	
+	/**
+	 * @return id returned by {@link GatewayClient#send(List)} for the batch
+	 */
+	public int getRequestId() {
+		return requestId;
+	}
+	
+	/**
+	 * @return number of commands in the batch
+	 */
+	public int size() {
+		return successes.length;
+	}
+	
+	/**
+	 * @param index index of the command in the batch
+	 * @return true if the command was executed without errors
+	 */
+	public boolean isSuccess(final int index) {
+		return successes[index];
+	}
+	
+	/**
+	 * @param index index of the command in the batch
+	 * @return messages sent to the gateway sender while executing the command
+	 */
+	public List<String> getReply(final int index) {
+		return Collections.unmodifiableList(replies.get(index));
+	}
+}
@@ -0,0 +1,141 @@
+package me.ragan262.commandmanager.gateway;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.CommandSender;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * <p>Virtual sender of commands received by {@link CommandGateway}. Messages sent to it are
+ * collected and sent back as the reply of the command. Messages sent after the command method
+ * returns (for example from scheduled tasks) are lost.</p>
+ * 
+ * <p>Permissions are fixed by the gateway. A permission is granted if the set contains it or a
+ * wildcard of any of its parents ("a.b.*" or "a.*" for "a.b.c", "*" for everything). Gateway senders
+ * are never operators and don't support permission attachments. Only permissions contained in the
+ * set are reported as set, wildcards only grant them.</p>
+ * 
+ * @author raGan
+ */
+public final class GatewaySender implements CommandSender {
+	
+	private final String name;
+	private final Set<String> permissions;
+	private final List<String> reply = new ArrayList<String>(4);
+	
+	GatewaySender(final String name, final Set<String> permissions) {
+		this.name = name;
+		this.permissions = permissions;
+	}
+	
+	List<String> getReply() {
+		return reply;
+	}
+	
+	@Override
+	public void sendMessage(final String message) {
+		reply.add(message);
+	}
+	
+	@Override
+	public void sendMessage(final String[] messages) {
+		Collections.addAll(reply, messages);
+	}
+	
+	@Override
+	public String getName() {
+		return name;
+	}
+	
+	@Override
+	public Server getServer() {
+		return Bukkit.getServer();
+	}
+	
+	@Override
+	public boolean hasPermission(final String perm) {
+		if(perm.isEmpty() || permissions.contains(perm) || permissions.contains("*")) {
+			return true;
+		}
+		int dot = perm.lastIndexOf('.');
+		while(dot > 0) {
+			if(permissions.contains(perm.substring(0, dot + 1) + '*')) {
+				return true;
+			}
+			dot = perm.lastIndexOf('.', dot - 1);
+		}
+		return false;
+	}
+	
+	@Override
+	public boolean hasPermission(final Permission perm) {
+		return hasPermission(perm.getName());
+	}
+	
+	@Override
+	public boolean isPermissionSet(final String perm) {
+		return permissions.contains(perm);
+	}
+	
+	@Override
+	public boolean isPermissionSet(final Permission perm) {
+		return permissions.contains(perm.getName());
+	}
+	
+	@Override
+	public Set<PermissionAttachmentInfo> getEffectivePermissions() {
+		final Set<PermissionAttachmentInfo> result = new HashSet<PermissionAttachmentInfo>();
+		for(final String perm : permissions) {
+			result.add(new PermissionAttachmentInfo(this, perm, null, true));
+		}
+		return result;
+	}
+	
+	@Override
+	public void recalculatePermissions() {
+	}
+	
+	@Override
+	public PermissionAttachment addAttachment(final Plugin plugin, final String name, final boolean value) {
+		throw new UnsupportedOperationException("Gateway senders have fixed permissions.");
+	}
+	
+	@Override
+	public PermissionAttachment addAttachment(final Plugin plugin) {
+		throw new UnsupportedOperationException("Gateway senders have fixed permissions.");
+	}
+	
+	@Override
+	public PermissionAttachment addAttachment(final Plugin plugin, final String name, final boolean value, final int ticks) {
+		throw new UnsupportedOperationException("Gateway senders have fixed permissions.");
+	}
+	
+	@Override
+	public PermissionAttachment addAttachment(final Plugin plugin, final int ticks) {
+		throw new UnsupportedOperationException("Gateway senders have fixed permissions.");
+	}
+	
+	@Override
+	public void removeAttachment(final PermissionAttachment attachment) {
+		throw new UnsupportedOperationException("Gateway senders have fixed permissions.");
+	}
+	
+	@Override
+	public boolean isOp() {
+		return false;
+	}
+	
+	@Override
+	public void setOp(final boolean value) {
+		throw new UnsupportedOperationException("Gateway senders can't be operators.");
+	}
+}
@@ -0,0 +1,15 @@
+package me.ragan262.commandmanager.lang;
+
+/**
+ * Messages of arguments with {@link me.ragan262.commandmanager.annotations.Argument constraints}.
+ * Languages that only implement {@link CommandLang} use the default messages for them.
+ * 
+ * @author raGan
+ */
+public interface ArgumentLang extends CommandLang {
+	
+	public String outOfRangeMessage(String argument);
+	
+	public String playerNotFoundMessage(String player);
+	
+}
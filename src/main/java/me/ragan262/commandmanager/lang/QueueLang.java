@@ -0,0 +1,13 @@
+package me.ragan262.commandmanager.lang;
+
+/**
+ * Messages of the {@link me.ragan262.commandmanager.CommandManager#setExecutionQueue(int, int) execution queue}.
+ * Languages that only implement {@link CommandLang} use the default messages for them.
+ * 
+ * @author raGan
+ */
+public interface QueueLang extends CommandLang {
+	
+	public String queueFullMessage();
+	
+}
@@ -0,0 +1,236 @@
+package me.ragan262.commandmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import me.ragan262.commandmanager.annotations.Command;
+import me.ragan262.commandmanager.annotations.CommandLabels;
+import me.ragan262.commandmanager.annotations.NestedCommand;
+import me.ragan262.commandmanager.context.CommandContext;
+
+import org.bukkit.Server;
+import org.bukkit.command.CommandSender;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.plugin.Plugin;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Labels and aliases resolved by command manager ignoring case, independent of the default locale.
+ * 
+ * @author raGan
+ */
+public class CommandManagerTest {
+	
+	private static final String LIST_USAGE = "/test item list [page]";
+	
+	private final Locale defaultLocale = Locale.getDefault();
+	private CommandManager manager;
+	private TestSender sender;
+	
+	public static class Commands {
+		
+		@Command(desc = "Item commands.")
+		@CommandLabels({ "item", "it" })
+		@NestedCommand(ItemCommands.class)
+		public void item(final CommandContext context, final CommandSender sender) {
+		}
+	}
+	
+	public static class ItemCommands {
+		
+		@Command(desc = "Lists items.", usage = "[page]", max = 1)
+		@CommandLabels({ "list", "ls" })
+		public void list(final CommandContext context, final CommandSender sender) {
+			context.reply("list " + context.getString(0, "1"));
+		}
+	}
+	
+	@Before
+	public void setUp() {
+		manager = new CommandManager(Logger.getLogger(CommandManagerTest.class.getName()), "/test");
+		manager.register(Commands.class);
+		sender = new TestSender();
+	}
+	
+	@After
+	public void restoreLocale() {
+		Locale.setDefault(defaultLocale);
+	}
+	
+	@Test
+	public void executesMixedCaseLabels() {
+		assertTrue(manager.handleCommandNow(new String[] { "ITEM", "List", "2" }, sender));
+		assertTrue(manager.handleCommandNow(new String[] { "iTeM", "LIST" }, sender));
+		assertEquals(Arrays.asList("list 2", "list 1"), sender.messages);
+	}
+	
+	@Test
+	public void executesMixedCaseAliases() {
+		assertTrue(manager.handleCommandNow(new String[] { "It", "LS" }, sender));
+		assertTrue(manager.handleCommandNow(new String[] { "item", "Ls", "3" }, sender));
+		assertEquals(Arrays.asList("list 1", "list 3"), sender.messages);
+	}
+	
+	@Test
+	public void executesTurkishDottedAndDotlessI() {
+		assertTrue(manager.handleCommandNow(new String[] { "İTEM", "LİST" }, sender));
+		assertTrue(manager.handleCommandNow(new String[] { "ıtem", "lıst" }, sender));
+		assertEquals(Arrays.asList("list 1", "list 1"), sender.messages);
+	}
+	
+	@Test
+	public void executesUnderTurkishDefaultLocale() {
+		Locale.setDefault(new Locale("tr"));
+		assertTrue(manager.handleCommandNow(new String[] { "ITEM", "LIST" }, sender));
+		assertTrue(manager.handleCommandNow(new String[] { "IT", "LS" }, sender));
+		assertTrue(manager.handleCommandNow(new String[] { "İtem", "list" }, sender));
+		assertEquals(Arrays.asList("list 1", "list 1", "list 1"), sender.messages);
+	}
+	
+	@Test
+	public void rejectsPrefixes() {
+		assertFalse(manager.handleCommandNow(new String[] { "ITE", "list" }, sender));
+		assertFalse(manager.handleCommandNow(new String[] { "item", "lis" }, sender));
+		assertFalse(sender.messages.contains("list 1"));
+	}
+	
+	@Test
+	public void resolvesUsageIgnoringCase() {
+		assertEquals(LIST_USAGE, manager.getUsage(new String[] { "item", "list" }));
+		assertEquals(LIST_USAGE, manager.getUsage(new String[] { "ITEM", "List" }));
+		assertEquals(LIST_USAGE, manager.getUsage(new String[] { "İTEM", "LİST" }));
+		Locale.setDefault(new Locale("tr"));
+		assertEquals(LIST_USAGE, manager.getUsage(new String[] { "ITEM", "LIST" }));
+	}
+	
+	@Test
+	public void resolvesHelpIgnoringCase() {
+		final List<String> expected = descriptions(manager.getHelp(new String[] { "item" }, sender, true));
+		assertEquals(Collections.singletonList("Lists items."), expected);
+		assertEquals(expected, descriptions(manager.getHelp(new String[] { "ITEM" }, sender, true)));
+		assertEquals(expected, descriptions(manager.getHelp(new String[] { "İTEM" }, sender, true)));
+		assertEquals(expected, descriptions(manager.getHelp(new String[] { "It" }, sender, true)));
+		Locale.setDefault(new Locale("tr"));
+		assertEquals(expected, descriptions(manager.getHelp(new String[] { "ITEM" }, sender, true)));
+	}
+	
+	@Test
+	public void completesAfterMixedCaseLabels() {
+		assertEquals(Collections.singletonList("list"), manager.complete(new String[] { "ITEM", "l" }, sender));
+		assertEquals(Collections.singletonList("list"), manager.complete(new String[] { "İtem", "L" }, sender));
+		Locale.setDefault(new Locale("tr"));
+		assertEquals(Collections.singletonList("list"), manager.complete(new String[] { "IT", "L" }, sender));
+	}
+	
+	private static List<String> descriptions(final Map<String, List<CommandHelp>> help) {
+		final List<String> result = new ArrayList<String>();
+		for(final List<CommandHelp> section : help.values()) {
+			for(final CommandHelp entry : section) {
+				result.add(entry.getDescription());
+			}
+		}
+		return result;
+	}
+	
+	private static final class TestSender implements CommandSender {
+		
+		final List<String> messages = new ArrayList<String>();
+		
+		@Override
+		public void sendMessage(final String message) {
+			messages.add(message);
+		}
+		
+		@Override
+		public void sendMessage(final String[] messages) {
+			this.messages.addAll(Arrays.asList(messages));
+		}
+		
+		@Override
+		public Server getServer() {
+			return null;
+		}
+		
+		@Override
+		public String getName() {
+			return "test";
+		}
+		
+		@Override
+		public boolean isPermissionSet(final String name) {
+			return true;
+		}
+		
+		@Override
+		public boolean isPermissionSet(final Permission perm) {
+			return true;
+		}
+		
+		@Override
+		public boolean hasPermission(final String name) {
+			return true;
+		}
+		
+		@Override
+		public boolean hasPermission(final Permission perm) {
+			return true;
+		}
+		
+		@Override
+		public PermissionAttachment addAttachment(final Plugin plugin, final String name, final boolean value) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public PermissionAttachment addAttachment(final Plugin plugin) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public PermissionAttachment addAttachment(final Plugin plugin, final String name, final boolean value, final int ticks) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public PermissionAttachment addAttachment(final Plugin plugin, final int ticks) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void removeAttachment(final PermissionAttachment attachment) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void recalculatePermissions() {
+		}
+		
+		@Override
+		public Set<PermissionAttachmentInfo> getEffectivePermissions() {
+			return Collections.emptySet();
+		}
+		
+		@Override
+		public boolean isOp() {
+			return true;
+		}
+		
+		@Override
+		public void setOp(final boolean value) {
+		}
+	}
+}
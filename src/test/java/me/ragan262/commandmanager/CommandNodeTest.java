@@ -0,0 +1,86 @@
+package me.ragan262.commandmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Label lookup ignoring case, independent of the default locale.
+ * 
+ * @author raGan
+ */
+public class CommandNodeTest {
+	
+	private final Locale defaultLocale = Locale.getDefault();
+	private CommandNode parent;
+	private CommandNode item;
+	private CommandNode list;
+	
+	@Before
+	public void setUp() {
+		parent = new CommandNode();
+		item = new CommandNode();
+		list = new CommandNode();
+		parent.addChild("item", item, false);
+		parent.addChild("it", item, true);
+		parent.addChild("list", list, false);
+		parent.addChild("ls", list, true);
+	}
+	
+	@After
+	public void restoreLocale() {
+		Locale.setDefault(defaultLocale);
+	}
+	
+	@Test
+	public void resolvesAsciiCaseVariants() {
+		assertSame(item, parent.getChild("item"));
+		assertSame(item, parent.getChild("ITEM"));
+		assertSame(item, parent.getChild("iTeM"));
+		assertSame(list, parent.getChild("List"));
+	}
+	
+	@Test
+	public void resolvesTurkishDottedAndDotlessI() {
+		assertSame(item, parent.getChild("İTEM"));
+		assertSame(item, parent.getChild("ıtem"));
+		assertSame(list, parent.getChild("LİST"));
+	}
+	
+	@Test
+	public void resolvesUnderTurkishDefaultLocale() {
+		Locale.setDefault(new Locale("tr"));
+		assertSame(item, parent.getChild("ITEM"));
+		assertSame(item, parent.getChild("item"));
+		assertSame(item, parent.getChild("İTEM"));
+		assertSame(item, parent.getChild("ıtem"));
+		assertSame(list, parent.getChild("LIST"));
+	}
+	
+	@Test
+	public void resolvesAliases() {
+		assertSame(item, parent.getChild("it"));
+		assertSame(item, parent.getChild("IT"));
+		assertSame(list, parent.getChild("LS"));
+		assertTrue(parent.isAlias(parent.indexOf("It")));
+		assertFalse(parent.isAlias(parent.indexOf("ITEM")));
+		assertEquals(2, parent.labelCount());
+	}
+	
+	@Test
+	public void doesNotMatchPrefixes() {
+		assertNull(parent.getChild("ite"));
+		assertNull(parent.getChild("items"));
+		assertNull(parent.getChild("l"));
+		assertNull(parent.getChild(""));
+		assertTrue(parent.indexOf("lis") < 0);
+	}
+}
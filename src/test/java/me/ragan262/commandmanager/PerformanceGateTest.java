@@ -0,0 +1,527 @@
+package me.ragan262.commandmanager;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import me.ragan262.commandmanager.annotations.Command;
+import me.ragan262.commandmanager.annotations.CommandLabels;
+import me.ragan262.commandmanager.annotations.NestedCommand;
+import me.ragan262.commandmanager.context.CommandContext;
+import me.ragan262.commandmanager.context.SimpleContextFactory;
+
+import org.bukkit.Server;
+import org.bukkit.command.CommandSender;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.plugin.Plugin;
+import org.junit.Test;
+
+/**
+ * <p>Performance regression gate. Builds a synthetic command tree of depth 3 and width 8 and 
+ * measures allocated bytes and time per operation of command execution, deep help, usage and 
+ * context parsing. Results are compared with the baseline file and the test fails if any of them 
+ * is worse than the baseline by more than the tolerance.</p>
+ * 
+ * <p>Configured by system properties set by the build: {@code perf.baseline} (baseline file), 
+ * {@code perf.allocationTolerance} (0.1 allows 10 % more bytes), {@code perf.time} and 
+ * {@code perf.timeTolerance}, {@code perf.update} to write current results as the new baseline
+ * and {@code perf.skip}. The test fails if the baseline is missing and is skipped if the JVM can't
+ * measure allocations. Allocations are stable and always checked. Times depend on the machine and
+ * its load, so they are only checked with {@code -Dperf.time=true}, against a baseline recorded on
+ * the same machine.</p>
+ * 
+ * @author raGan
+ */
+public class PerformanceGateTest {
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Pattern ENTRY = Pattern.compile(
+			"\"(\\w+)\"\\s*:\\s*\\{\\s*\"nsPerOp\"\\s*:\\s*([-0-9.Ee+]+)\\s*,\\s*\"bytesPerOp\"\\s*:\\s*([-0-9.Ee+]+)\\s*\\}");
+	/** Allowed allocation difference regardless of tolerance, covers rounding of small values. */
+	private static final double ALLOCATION_SLACK = 16;
+	private static final long WARMUP_NANOS = 1000000000L;
+	private static final long ROUND_NANOS = 200000000L;
+	private static final int ROUNDS = 10;
+	private static final int DEPTH = 3;
+	private static final int WIDTH = 8;
+	
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final Method ALLOCATED_BYTES = findAllocatedBytes();
+	
+	private static volatile Object sink;
+	
+	@Test
+	public void noRegression() throws IOException {
+		assumeTrue(!Boolean.getBoolean("perf.skip"));
+		final File baselineFile = new File(System.getProperty("perf.baseline", "src/test/resources/perf/baseline.json"));
+		final boolean checkTime = Boolean.getBoolean("perf.time");
+		final double timeTolerance = Double.parseDouble(System.getProperty("perf.timeTolerance", "0.5"));
+		final double allocationTolerance = Double.parseDouble(System.getProperty("perf.allocationTolerance", "0.1"));
+		assumeTrue("Allocation measurement is not supported by this JVM.", ALLOCATED_BYTES != null);
+		
+		final Map<String, double[]> results = run();
+		if(Boolean.getBoolean("perf.update")) {
+			writeBaseline(baselineFile, results);
+			return;
+		}
+		assertTrue("Baseline " + baselineFile + " is missing, record it with -Dperf.update=true.", baselineFile.exists());
+		final List<String> regressions = new ArrayList<String>();
+		final Matcher matcher = ENTRY.matcher(read(baselineFile));
+		while(matcher.find()) {
+			final double[] current = results.get(matcher.group(1));
+			if(current == null) {
+				continue;
+			}
+			final double nanos = Double.parseDouble(matcher.group(2));
+			final double bytes = Double.parseDouble(matcher.group(3));
+			if(checkTime && current[0] > nanos * (1 + timeTolerance)) {
+				regressions.add(String.format(Locale.ENGLISH, "%s: %.1f ns/op, baseline %.1f ns/op",
+						matcher.group(1), current[0], nanos));
+			}
+			if(current[1] > bytes * (1 + allocationTolerance) + ALLOCATION_SLACK) {
+				regressions.add(String.format(Locale.ENGLISH, "%s: %.1f B/op, baseline %.1f B/op",
+						matcher.group(1), current[1], bytes));
+			}
+		}
+		assertTrue("Performance regression: " + regressions, regressions.isEmpty());
+	}
+	
+	/**
+	 * @return time in nanoseconds and allocated bytes per operation, by operation name
+	 */
+	private static Map<String, double[]> run() {
+		final CommandManager manager = new CommandManager(Logger.getLogger(PerformanceGateTest.class.getName()), "/bench");
+		manager.register(Level0.class);
+		
+		final CommandSender sender = new BenchSender();
+		final String[] path = new String[DEPTH];
+		for(int i = 0; i < DEPTH; i++) {
+			path[i] = "C" + (WIDTH - 1);
+		}
+		final String[] commandArgs = new String[DEPTH + 3];
+		System.arraycopy(path, 0, commandArgs, 0, DEPTH);
+		commandArgs[DEPTH] = "player";
+		commandArgs[DEPTH + 1] = "\"quoted";
+		commandArgs[DEPTH + 2] = "argument\"";
+		final String[] contextArgs = { "player", "12", "-fs", "\"quoted", "argument\"", "last" };
+		final String[] noArgs = new String[0];
+		
+		final Map<String, Runnable> operations = new LinkedHashMap<String, Runnable>();
+		operations.put("execute", new Runnable() {
+			@Override
+			public void run() {
+				try {
+					manager.execute(commandArgs.clone(), sender);
+				}
+				catch (final Throwable e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		});
+		operations.put("help", new Runnable() {
+			@Override
+			public void run() {
+				sink = manager.getHelp(noArgs, sender, true);
+			}
+		});
+		operations.put("usage", new Runnable() {
+			@Override
+			public void run() {
+				sink = manager.getUsage(commandArgs);
+			}
+		});
+		operations.put("context", new Runnable() {
+			@Override
+			public void run() {
+				sink = SimpleContextFactory.instance.getContext(contextArgs.clone(), path, sender, manager);
+			}
+		});
+		final Map<String, double[]> results = measure(operations);
+		sink = null;
+		return results;
+	}
+	
+	/**
+	 * Runs all operations until warmed up, then measures several rounds of each operation, 
+	 * interleaved so that a temporary slowdown doesn't affect a single operation only. The best 
+	 * round of each operation is taken.
+	 * 
+	 * @return time in nanoseconds and allocated bytes per operation, by operation name
+	 */
+	private static Map<String, double[]> measure(final Map<String, Runnable> operations) {
+		final Map<String, Long> iterations = new LinkedHashMap<String, Long>();
+		final Map<String, double[]> results = new LinkedHashMap<String, double[]>();
+		for(final Map.Entry<String, Runnable> entry : operations.entrySet()) {
+			long count = 0;
+			final long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+			while(System.nanoTime() < warmupEnd) {
+				entry.getValue().run();
+				count++;
+			}
+			iterations.put(entry.getKey(), Math.max(1, count * ROUND_NANOS / WARMUP_NANOS));
+			results.put(entry.getKey(), new double[] { Double.MAX_VALUE, Double.MAX_VALUE });
+		}
+		for(int round = 0; round < ROUNDS; round++) {
+			for(final Map.Entry<String, Runnable> entry : operations.entrySet()) {
+				final Runnable operation = entry.getValue();
+				final long count = iterations.get(entry.getKey());
+				final long bytes = allocatedBytes();
+				final long start = System.nanoTime();
+				for(long i = 0; i < count; i++) {
+					operation.run();
+				}
+				final long time = System.nanoTime() - start;
+				final double[] result = results.get(entry.getKey());
+				result[0] = Math.min(result[0], (double) time / count);
+				result[1] = Math.min(result[1], (double) (allocatedBytes() - bytes) / count);
+			}
+		}
+		return results;
+	}
+	
+	private static Method findAllocatedBytes() {
+		try {
+			final Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+			if(!type.isInstance(THREADS) || !(Boolean) type.getMethod("isThreadAllocatedMemorySupported").invoke(THREADS)) {
+				return null;
+			}
+			type.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(THREADS, true);
+			return type.getMethod("getThreadAllocatedBytes", long.class);
+		}
+		catch (final Exception e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * @return bytes allocated by the current thread so far, 0 if allocation is not measured
+	 */
+	private static long allocatedBytes() {
+		if(ALLOCATED_BYTES == null) {
+			return 0;
+		}
+		try {
+			return (Long) ALLOCATED_BYTES.invoke(THREADS, Thread.currentThread().getId());
+		}
+		catch (final Exception e) {
+			return 0;
+		}
+	}
+	
+	private static void writeBaseline(final File file, final Map<String, double[]> results) throws IOException {
+		final File parent = file.getAbsoluteFile().getParentFile();
+		if(parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Failed to create directory " + parent + ".");
+		}
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF_8);
+		try {
+			writer.write("{");
+			boolean first = true;
+			for(final Map.Entry<String, double[]> entry : results.entrySet()) {
+				writer.write(String.format(Locale.ENGLISH, "%s\n\t\"%s\": { \"nsPerOp\": %.1f, \"bytesPerOp\": %.1f }",
+						first ? "" : ",", entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+				first = false;
+			}
+			writer.write("\n}\n");
+		}
+		finally {
+			writer.close();
+		}
+	}
+	
+	private static String read(final File file) throws IOException {
+		final Reader reader = new InputStreamReader(new FileInputStream(file), UTF_8);
+		try {
+			final StringBuilder sb = new StringBuilder();
+			final char[] buffer = new char[1024];
+			int read;
+			while((read = reader.read(buffer)) >= 0) {
+				sb.append(buffer, 0, read);
+			}
+			return sb.toString();
+		}
+		finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Top level of the synthetic tree, every level has the same commands.
+	 */
+	public static class Level0 {
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c0", "a0" })
+		@NestedCommand(Level1.class)
+		public void c0(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c1", "a1" })
+		@NestedCommand(Level1.class)
+		public void c1(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c2", "a2" })
+		@NestedCommand(Level1.class)
+		public void c2(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c3", "a3" })
+		@NestedCommand(Level1.class)
+		public void c3(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c4", "a4" })
+		@NestedCommand(Level1.class)
+		public void c4(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c5", "a5" })
+		@NestedCommand(Level1.class)
+		public void c5(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c6", "a6" })
+		@NestedCommand(Level1.class)
+		public void c6(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c7", "a7" })
+		@NestedCommand(Level1.class)
+		public void c7(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+	}
+	
+	public static class Level1 {
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c0", "a0" })
+		@NestedCommand(Level2.class)
+		public void c0(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c1", "a1" })
+		@NestedCommand(Level2.class)
+		public void c1(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c2", "a2" })
+		@NestedCommand(Level2.class)
+		public void c2(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c3", "a3" })
+		@NestedCommand(Level2.class)
+		public void c3(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c4", "a4" })
+		@NestedCommand(Level2.class)
+		public void c4(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c5", "a5" })
+		@NestedCommand(Level2.class)
+		public void c5(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c6", "a6" })
+		@NestedCommand(Level2.class)
+		public void c6(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c7", "a7" })
+		@NestedCommand(Level2.class)
+		public void c7(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+	}
+	
+	public static class Level2 {
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c0", "a0" })
+		public void c0(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c1", "a1" })
+		public void c1(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c2", "a2" })
+		public void c2(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c3", "a3" })
+		public void c3(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c4", "a4" })
+		public void c4(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c5", "a5" })
+		public void c5(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c6", "a6" })
+		public void c6(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+		
+		@Command(desc = "Synthetic command.", usage = "[player] [text]", permission = "bench.use", max = 2)
+		@CommandLabels({ "c7", "a7" })
+		public void c7(final CommandContext context, final CommandSender sender) {
+			sink = context.getString(0, null);
+		}
+	}
+	
+	private static final class BenchSender implements CommandSender {
+		
+		@Override
+		public void sendMessage(final String message) {
+		}
+		
+		@Override
+		public void sendMessage(final String[] messages) {
+		}
+		
+		@Override
+		public Server getServer() {
+			return null;
+		}
+		
+		@Override
+		public String getName() {
+			return "bench";
+		}
+		
+		@Override
+		public boolean isPermissionSet(final String name) {
+			return true;
+		}
+		
+		@Override
+		public boolean isPermissionSet(final Permission perm) {
+			return true;
+		}
+		
+		@Override
+		public boolean hasPermission(final String name) {
+			return true;
+		}
+		
+		@Override
+		public boolean hasPermission(final Permission perm) {
+			return true;
+		}
+		
+		@Override
+		public PermissionAttachment addAttachment(final Plugin plugin, final String name, final boolean value) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public PermissionAttachment addAttachment(final Plugin plugin) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public PermissionAttachment addAttachment(final Plugin plugin, final String name, final boolean value, final int ticks) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public PermissionAttachment addAttachment(final Plugin plugin, final int ticks) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void removeAttachment(final PermissionAttachment attachment) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void recalculatePermissions() {
+		}
+		
+		@Override
+		public Set<PermissionAttachmentInfo> getEffectivePermissions() {
+			return Collections.emptySet();
+		}
+		
+		@Override
+		public boolean isOp() {
+			return true;
+		}
+		
+		@Override
+		public void setOp(final boolean value) {
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package me.ragan262.commandmanager.gateway;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+import me.ragan262.commandmanager.CommandManager;
+import me.ragan262.commandmanager.annotations.Command;
+import me.ragan262.commandmanager.annotations.CommandLabels;
+import me.ragan262.commandmanager.context.CommandContext;
+
+import org.bukkit.command.CommandSender;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Round trips through a gateway listening on localhost.
+ * 
+ * @author raGan
+ */
+public class CommandGatewayTest {
+	
+	private static final Executor DIRECT = new Executor() {
+		@Override
+		public void execute(final Runnable command) {
+			command.run();
+		}
+	};
+	
+	private CommandGateway gateway;
+	private String secret;
+	
+	public static class Commands {
+		
+		@Command(desc = "Repeats the arguments.", min = 1, permission = "test.echo")
+		@CommandLabels({ "echo" })
+		public void echo(final CommandContext context, final CommandSender sender) {
+			for(final String arg : context.getArgs()) {
+				context.reply(arg);
+			}
+		}
+		
+		@Command(desc = "Not granted to the gateway.", permission = "test.admin")
+		@CommandLabels({ "admin" })
+		public void admin(final CommandContext context, final CommandSender sender) {
+			context.reply("admin");
+		}
+	}
+	
+	@Before
+	public void setUp() throws IOException {
+		final Logger logger = Logger.getLogger(CommandGatewayTest.class.getName());
+		final CommandManager manager = new CommandManager(logger, "/test");
+		manager.register(Commands.class);
+		secret = CommandGateway.generateSecret();
+		gateway = new CommandGateway(manager, DIRECT, logger, "gateway", Collections.singleton("test.echo"), secret);
+		gateway.start(0);
+	}
+	
+	@After
+	public void tearDown() {
+		gateway.close();
+	}
+	
+	@Test
+	public void executesBatchAndReturnsReplies() throws IOException {
+		final GatewayClient client = new GatewayClient(gateway.getPort(), secret);
+		try {
+			final int id = client.send(Arrays.asList(new String[] { "echo", "a", "b" }, new String[] { "admin" }, new String[] { "unknown" }));
+			final GatewayResponse response = client.receive();
+			assertEquals(id, response.getRequestId());
+			assertEquals(3, response.size());
+			assertTrue(response.isSuccess(0));
+			assertEquals(Arrays.asList("a", "b"), response.getReply(0));
+			assertFalse(response.isSuccess(1));
+			assertFalse(response.isSuccess(2));
+		}
+		finally {
+			client.close();
+		}
+	}
+	
+	@Test
+	public void pipelinesBatchesInOrder() throws IOException {
+		final GatewayClient client = new GatewayClient(gateway.getPort(), secret);
+		try {
+			for(int i = 0; i < 20; i++) {
+				client.send(Collections.singletonList(new String[] { "echo", Integer.toString(i) }));
+			}
+			for(int i = 0; i < 20; i++) {
+				final GatewayResponse response = client.receive();
+				assertEquals(i, response.getRequestId());
+				assertEquals(Collections.singletonList(Integer.toString(i)), response.getReply(0));
+			}
+		}
+		finally {
+			client.close();
+		}
+	}
+	
+	@Test
+	public void rejectsWrongSecret() {
+		try {
+			new GatewayClient(gateway.getPort(), secret.substring(1) + "x").close();
+			fail("Wrong secret was accepted.");
+		}
+		catch (final IOException expected) {
+		}
+	}
+	
+	@Test
+	public void closesConnectionWithoutHandshake() throws IOException {
+		gateway.setHandshakeTimeout(100);
+		final Socket socket = new Socket(InetAddress.getLoopbackAddress(), gateway.getPort());
+		try {
+			socket.setSoTimeout(5000);
+			assertEquals(-1, socket.getInputStream().read());
+		}
+		finally {
+			socket.close();
+		}
+	}
+}